@@ -0,0 +1,57 @@
+package fr.diskmth.socketimpl.benchmark;
+
+import fr.diskmth.socketimpl.common.SSLCertificate;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+public class BenchmarkCertificates
+{
+    public static final String PASSWORD = "changeit";
+    public static final String TRUSTSTORE = "trust.jks";
+
+    public static Path generate() throws IOException, InterruptedException
+    {
+        final Path directory = Files.createTempDirectory("socketimpl-benchmark");
+        directory.toFile().deleteOnExit();
+
+        for (String alias : List.of("server", "client"))
+        {
+            keytool(directory, "-genkeypair", "-alias", alias, "-keyalg", "EC", "-groupname", "secp256r1", "-dname", "CN=localhost", "-validity", "1",
+                    "-storetype", "PKCS12", "-keystore", alias + ".p12", "-storepass", PASSWORD, "-keypass", PASSWORD);
+            keytool(directory, "-exportcert", "-alias", alias, "-keystore", alias + ".p12", "-storepass", PASSWORD, "-file", alias + ".cer");
+            keytool(directory, "-importcert", "-noprompt", "-alias", alias, "-file", alias + ".cer", "-storetype", "JKS", "-keystore", TRUSTSTORE, "-storepass", PASSWORD);
+        }
+
+        for (String file : List.of("server.p12", "server.cer", "client.p12", "client.cer", TRUSTSTORE))
+        {
+            directory.resolve(file).toFile().deleteOnExit();
+        }
+
+        return directory;
+    }
+
+    public static SSLCertificate certificate(Path directory, String alias) throws IOException
+    {
+        return new SSLCertificate(
+                new ByteArrayInputStream(Files.readAllBytes(directory.resolve(alias + ".p12"))), PASSWORD,
+                new ByteArrayInputStream(Files.readAllBytes(directory.resolve(TRUSTSTORE))), PASSWORD);
+    }
+
+    private static void keytool(Path directory, String... arguments) throws IOException, InterruptedException
+    {
+        final String[] command = new String[arguments.length + 1];
+        command[0] = Path.of(System.getProperty("java.home"), "bin", "keytool").toString();
+        System.arraycopy(arguments, 0, command, 1, arguments.length);
+
+        final Process process = new ProcessBuilder(command).directory(directory.toFile()).redirectErrorStream(true).start();
+        final String output = new String(process.getInputStream().readAllBytes());
+        if (process.waitFor() != 0)
+        {
+            throw new IOException("keytool " + arguments[0] + " failed: " + output);
+        }
+    }
+}
@@ -0,0 +1,203 @@
+package fr.diskmth.socketimpl.benchmark;
+
+import fr.diskmth.loggy.Logger;
+import fr.diskmth.socketimpl.IComplete;
+import fr.diskmth.socketimpl.client.Client;
+import fr.diskmth.socketimpl.client.ClientBuilder;
+import fr.diskmth.socketimpl.common.Packet;
+import fr.diskmth.socketimpl.common.PacketBuffer;
+import fr.diskmth.socketimpl.common.PacketContext;
+import fr.diskmth.socketimpl.common.PacketRegistry;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.net.ServerSocket;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class LoopbackBenchmark
+{
+    public static final int PIPELINE = 64;
+
+    @Param({"plain", "tls"})
+    public String transport;
+
+    @Param({"blocking", "nonBlocking"})
+    public String engine;
+
+    @Param({"fixed", "virtual"})
+    public String threads;
+
+    @Param({"1", "8"})
+    public int clientsCount;
+
+    @Param({"256"})
+    public int payloadSize;
+
+    private Process serverProcess;
+    private Client[] clients;
+    private byte[] payload;
+
+    @Setup
+    public void setup() throws Exception
+    {
+        if (PacketRegistry.indexOf(Echo.class) < 0)
+        {
+            PacketRegistry.registerPacket(0, Echo.class);
+            PacketRegistry.registerPacket(1, Reply.class);
+        }
+
+        final int port;
+        try (ServerSocket socket = new ServerSocket(0))
+        {
+            port = socket.getLocalPort();
+        }
+
+        final Path certificates = transport.equals("tls") ? BenchmarkCertificates.generate() : null;
+        startServer(port, certificates);
+
+        final Logger logger = new Logger("LoopbackBenchmark");
+        logger.mute(true);
+
+        payload = new byte[payloadSize];
+        clients = new Client[clientsCount];
+        for (int i = 0; i < clientsCount; i++)
+        {
+            final ClientBuilder builder = new ClientBuilder(logger).tcpNoDelay(true);
+            if (certificates != null)
+            {
+                builder.setAddress("localhost", port, BenchmarkCertificates.certificate(certificates, "client"));
+            }
+            else
+            {
+                builder.setAddress("localhost", port);
+            }
+            if (threads.equals("virtual"))
+            {
+                builder.virtualThreads();
+            }
+
+            clients[i] = builder.build();
+            clients[i].init();
+        }
+    }
+
+    private void startServer(int port, Path certificates) throws IOException
+    {
+        final String java = ProcessHandle.current().info().command().orElse(Path.of(System.getProperty("java.home"), "bin", "java").toString());
+        serverProcess = new ProcessBuilder(List.of(
+                java, "-cp", System.getProperty("java.class.path"), LoopbackServer.class.getName(),
+                String.valueOf(port), transport, engine, threads, certificates != null ? certificates.toString() : ""))
+                .redirectError(ProcessBuilder.Redirect.INHERIT)
+                .start();
+
+        final BufferedReader output = new BufferedReader(new InputStreamReader(serverProcess.getInputStream()));
+        String line;
+        while ((line = output.readLine()) != null)
+        {
+            if (line.equals(LoopbackServer.READY))
+            {
+                return;
+            }
+        }
+        throw new IOException("The loopback server exited before being ready");
+    }
+
+    @TearDown
+    public void tearDown() throws InterruptedException
+    {
+        for (Client client : clients)
+        {
+            if (client != null)
+            {
+                client.close();
+            }
+        }
+
+        serverProcess.destroy();
+        serverProcess.waitFor(10, TimeUnit.SECONDS);
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.Throughput)
+    @OutputTimeUnit(TimeUnit.SECONDS)
+    @OperationsPerInvocation(PIPELINE)
+    public void pipelinedThroughput() throws Exception
+    {
+        final IComplete<?>[] replies = new IComplete[PIPELINE];
+        for (int i = 0; i < PIPELINE; i++)
+        {
+            replies[i] = clients[i % clients.length].call(new Echo(payload));
+        }
+
+        for (IComplete<?> reply : replies)
+        {
+            reply.result(10, TimeUnit.SECONDS);
+        }
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.SampleTime)
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public Packet.C2S roundTripLatency() throws Exception
+    {
+        return clients[0].call(new Echo(payload)).result(10, TimeUnit.SECONDS);
+    }
+
+    public static class Echo extends Packet.C2S
+    {
+        private final byte[] payload;
+
+        public Echo()
+        {
+            this(new byte[0]);
+        }
+
+        public Echo(byte[] payload)
+        {
+            this.payload = payload;
+        }
+
+        @Override
+        public int estimateSize()
+        {
+            return payload.length;
+        }
+
+        @Override
+        public void send(PacketBuffer.Writer writer, PacketContext.Client context)
+        {
+            writer.writeBytes(payload, 0, payload.length);
+        }
+
+        @Override
+        public void receive(PacketBuffer.Reader reader, PacketContext.Client context) {}
+    }
+
+    public static class Reply extends Packet.C2S
+    {
+        private int size;
+
+        @Override
+        public void send(PacketBuffer.Writer writer, PacketContext.Client context) {}
+
+        @Override
+        public void receive(PacketBuffer.Reader reader, PacketContext.Client context)
+        {
+            size = reader.remaining();
+            reader.readSlice(size);
+        }
+
+        public int getSize()
+        {
+            return size;
+        }
+    }
+}
@@ -0,0 +1,99 @@
+package fr.diskmth.socketimpl.benchmark;
+
+import fr.diskmth.loggy.Logger;
+import fr.diskmth.socketimpl.common.Packet;
+import fr.diskmth.socketimpl.common.PacketBuffer;
+import fr.diskmth.socketimpl.common.PacketContext;
+import fr.diskmth.socketimpl.common.PacketRegistry;
+import fr.diskmth.socketimpl.server.Server;
+import fr.diskmth.socketimpl.server.ServerBuilder;
+
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+
+public class LoopbackServer
+{
+    public static final String READY = "READY";
+    public static final int FIXED_THREADS = 32;
+
+    public static void main(String[] args) throws Exception
+    {
+        final int port = Integer.parseInt(args[0]);
+        final String transport = args[1];
+        final String engine = args[2];
+        final String threads = args[3];
+
+        PacketRegistry.registerPacket(0, Echo.class);
+        PacketRegistry.registerPacket(1, Reply.class);
+        PacketRegistry.freeze();
+
+        final Logger logger = new Logger("LoopbackServer");
+        logger.mute(true);
+
+        final ServerBuilder builder = new ServerBuilder(logger).setAddress("localhost", port).maxEnqueuedRequests(1024).tcpNoDelay(true);
+        if (transport.equals("tls"))
+        {
+            builder.withSSL(BenchmarkCertificates.certificate(Path.of(args[4]), "server"));
+        }
+        if (engine.equals("nonBlocking"))
+        {
+            builder.nonBlocking(0);
+        }
+        if (threads.equals("virtual"))
+        {
+            builder.virtualThreads();
+        }
+        else
+        {
+            builder.multiThread(FIXED_THREADS);
+        }
+
+        final Server server = builder.build();
+        server.init();
+        System.out.println(READY);
+        System.out.flush();
+        server.start();
+    }
+
+    public static class Echo extends Packet.S2C
+    {
+        @Override
+        public void send(PacketBuffer.Writer writer, PacketContext.Server context) {}
+
+        @Override
+        public void receive(PacketBuffer.Reader reader, PacketContext.Server context)
+        {
+            context.reply(new Reply(reader.readSlice(reader.remaining())));
+        }
+    }
+
+    public static class Reply extends Packet.S2C
+    {
+        private final ByteBuffer payload;
+
+        public Reply()
+        {
+            this(null);
+        }
+
+        public Reply(ByteBuffer payload)
+        {
+            this.payload = payload;
+        }
+
+        @Override
+        public int estimateSize()
+        {
+            return payload.remaining();
+        }
+
+        @Override
+        public void send(PacketBuffer.Writer writer, PacketContext.Server context)
+        {
+            writer.writeBytes(payload);
+        }
+
+        @Override
+        public void receive(PacketBuffer.Reader reader, PacketContext.Server context) {}
+    }
+}
@@ -0,0 +1,97 @@
+package fr.diskmth.socketimpl.benchmark;
+
+import fr.diskmth.socketimpl.common.PacketBuffer;
+import fr.diskmth.socketimpl.common.PacketBufferPool;
+import fr.diskmth.socketimpl.common.StringCache;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.nio.ByteBuffer;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class PacketBufferBenchmark
+{
+    @Param({"16", "1024"})
+    public int payloadSize;
+
+    private final UUID uuid = UUID.randomUUID();
+    private final String name = "player-name";
+    private PacketBufferPool pool;
+    private byte[] payload;
+    private ByteBuffer encoded;
+    private PacketBuffer.Reader reader;
+    private PacketBuffer.Reader cachedReader;
+
+    @Setup
+    public void setup()
+    {
+        pool = new PacketBufferPool();
+        payload = new byte[payloadSize];
+
+        final PacketBuffer.Writer writer = new PacketBuffer.Writer(64);
+        write(writer);
+        encoded = writer.toByteBuffer();
+
+        reader = new PacketBuffer.Reader();
+        cachedReader = new PacketBuffer.Reader();
+        cachedReader.setStringCache(new StringCache());
+    }
+
+    private void write(PacketBuffer.Writer writer)
+    {
+        writer.writeInt(42);
+        writer.writeVarInt(300);
+        writer.writeLong(System.nanoTime());
+        writer.writeString(name);
+        writer.writeUUID(uuid);
+        writer.writeByteArray(payload);
+    }
+
+    private void read(PacketBuffer.Reader reader, Blackhole blackhole)
+    {
+        reader.reassign(encoded.duplicate());
+        blackhole.consume(reader.readInt());
+        blackhole.consume(reader.readVarInt());
+        blackhole.consume(reader.readLong());
+        blackhole.consume(reader.readString());
+        blackhole.consume(reader.readUUID());
+        blackhole.consume(reader.readSlice(reader.readVarInt()));
+    }
+
+    @Benchmark
+    public ByteBuffer encodeFreshWriter()
+    {
+        final PacketBuffer.Writer writer = new PacketBuffer.Writer(64);
+        write(writer);
+        return writer.toByteBuffer();
+    }
+
+    @Benchmark
+    public int encodePooledWriter()
+    {
+        final PacketBuffer.Writer writer = pool.acquireWriter();
+        write(writer);
+        final int size = writer.getPosition();
+        pool.release(writer);
+        return size;
+    }
+
+    @Benchmark
+    public void decode(Blackhole blackhole)
+    {
+        read(reader, blackhole);
+    }
+
+    @Benchmark
+    public void decodeWithStringCache(Blackhole blackhole)
+    {
+        read(cachedReader, blackhole);
+    }
+}
@@ -0,0 +1,76 @@
+package fr.diskmth.socketimpl.benchmark;
+
+import fr.diskmth.socketimpl.common.Packet;
+import fr.diskmth.socketimpl.common.PacketBuffer;
+import fr.diskmth.socketimpl.common.PacketContext;
+import fr.diskmth.socketimpl.common.PacketRegistry;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class PacketRegistryBenchmark
+{
+    private int reflectiveId;
+    private int supplierId;
+
+    @Setup
+    public void setup()
+    {
+        if (PacketRegistry.indexOf(ReflectivePacket.class) < 0)
+        {
+            PacketRegistry.registerPacket(ReflectivePacket.class);
+            PacketRegistry.registerPacket(PacketRegistry.indexOf(ReflectivePacket.class) + 1, SupplierPacket.class, SupplierPacket::new);
+        }
+
+        reflectiveId = PacketRegistry.indexOf(ReflectivePacket.class);
+        supplierId = PacketRegistry.indexOf(SupplierPacket.class);
+    }
+
+    @Benchmark
+    public int indexOf()
+    {
+        return PacketRegistry.indexOf(ReflectivePacket.class);
+    }
+
+    @Benchmark
+    public Class<? extends Packet> get()
+    {
+        return PacketRegistry.get(ReflectivePacket.class, reflectiveId);
+    }
+
+    @Benchmark
+    public Packet.S2C createReflective()
+    {
+        return PacketRegistry.create(Packet.S2C.class, reflectiveId);
+    }
+
+    @Benchmark
+    public Packet.S2C createSupplier()
+    {
+        return PacketRegistry.create(Packet.S2C.class, supplierId);
+    }
+
+    public static class ReflectivePacket extends Packet.S2C
+    {
+        @Override
+        public void send(PacketBuffer.Writer writer, PacketContext.Server context) {}
+
+        @Override
+        public void receive(PacketBuffer.Reader reader, PacketContext.Server context) {}
+    }
+
+    public static class SupplierPacket extends Packet.S2C
+    {
+        @Override
+        public void send(PacketBuffer.Writer writer, PacketContext.Server context) {}
+
+        @Override
+        public void receive(PacketBuffer.Reader reader, PacketContext.Server context) {}
+    }
+}
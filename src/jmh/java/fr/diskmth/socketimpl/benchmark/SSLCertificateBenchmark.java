@@ -0,0 +1,45 @@
+package fr.diskmth.socketimpl.benchmark;
+
+import fr.diskmth.socketimpl.common.SSLCertificate;
+import org.openjdk.jmh.annotations.*;
+
+import javax.net.ssl.SSLContext;
+import java.io.ByteArrayInputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class SSLCertificateBenchmark
+{
+    private byte[] keystore;
+    private byte[] truststore;
+    private SSLCertificate cachedCertificate;
+
+    @Setup
+    public void setup() throws Exception
+    {
+        final Path certificates = BenchmarkCertificates.generate();
+        keystore = Files.readAllBytes(certificates.resolve("server.p12"));
+        truststore = Files.readAllBytes(certificates.resolve(BenchmarkCertificates.TRUSTSTORE));
+        cachedCertificate = BenchmarkCertificates.certificate(certificates, "server");
+        cachedCertificate.createSSLContext();
+    }
+
+    @Benchmark
+    public SSLContext createSSLContext() throws Exception
+    {
+        return new SSLCertificate(new ByteArrayInputStream(keystore), BenchmarkCertificates.PASSWORD, new ByteArrayInputStream(truststore), BenchmarkCertificates.PASSWORD).createSSLContext();
+    }
+
+    @Benchmark
+    public SSLContext createSSLContextCached() throws Exception
+    {
+        return cachedCertificate.createSSLContext();
+    }
+}
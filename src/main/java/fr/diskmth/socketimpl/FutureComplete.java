@@ -0,0 +1,36 @@
+package fr.diskmth.socketimpl;
+
+import java.util.concurrent.CompletableFuture;
+
+public class FutureComplete<T> implements IComplete<T>
+{
+    private final CompletableFuture<T> future;
+
+    public FutureComplete(CompletableFuture<T> future)
+    {
+        this.future = future;
+    }
+
+    public static <T> FutureComplete<T> completed(T value)
+    {
+        return new FutureComplete<>(CompletableFuture.completedFuture(value));
+    }
+
+    @Override
+    public T result()
+    {
+        return future.join();
+    }
+
+    @Override
+    public void onComplete(Runnable onComplete)
+    {
+        future.whenComplete((result, throwable) -> onComplete.run());
+    }
+
+    @Override
+    public CompletableFuture<T> toCompletableFuture()
+    {
+        return future;
+    }
+}
@@ -1,8 +1,58 @@
 package fr.diskmth.socketimpl;
 
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
 public interface IComplete<T>
 {
     T result();
 
     void onComplete(Runnable onComplete);
+
+    default T result(long timeout, TimeUnit unit) throws TimeoutException
+    {
+        try
+        {
+            return toCompletableFuture().get(timeout, unit);
+        }
+        catch (ExecutionException exception)
+        {
+            throw new CompletionException(exception.getCause());
+        }
+        catch (InterruptedException exception)
+        {
+            Thread.currentThread().interrupt();
+            throw new CompletionException(exception);
+        }
+    }
+
+    default boolean cancel()
+    {
+        return toCompletableFuture().cancel(false);
+    }
+
+    default boolean isDone()
+    {
+        return toCompletableFuture().isDone();
+    }
+
+    default CompletableFuture<T> toCompletableFuture()
+    {
+        final CompletableFuture<T> future = new CompletableFuture<>();
+        onComplete(() ->
+        {
+            try
+            {
+                future.complete(result());
+            }
+            catch (RuntimeException exception)
+            {
+                future.completeExceptionally(exception);
+            }
+        });
+        return future;
+    }
 }
@@ -2,9 +2,12 @@ package fr.diskmth.socketimpl.client;
 
 import fr.diskmth.loggy.Logger;
 import fr.diskmth.loggy.LogsFile;
+import fr.diskmth.socketimpl.FutureComplete;
 import fr.diskmth.socketimpl.IComplete;
 import fr.diskmth.socketimpl.IRequestExecutor;
 import fr.diskmth.socketimpl.Result;
+import fr.diskmth.socketimpl.common.FrameDecoder;
+import fr.diskmth.socketimpl.common.Packet;
 import fr.diskmth.socketimpl.common.SSLCertificate;
 
 import javax.net.SocketFactory;
@@ -13,8 +16,11 @@ import javax.net.ssl.SSLSocket;
 import java.io.IOException;
 import java.net.Socket;
 import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicLong;
 
 public class Client
 {
@@ -24,13 +30,20 @@ public class Client
     public final SSLCertificate sslCertificate;
     public final LogsFile genericsLogs;
     public final boolean genericsLogsInit;
-    public final ExecutorService executor = Executors.newSingleThreadExecutor();
+    public final ExecutorService executor;
+    public final int maxConnections;
+    public final long acquireTimeoutMillis;
+    public final long requestTimeoutMillis;
+    public final boolean tcpNoDelay;
 
     protected volatile boolean isInit = false;
 
-    private Socket clientSocket;
+    private final AtomicLong nextRequestId = new AtomicLong();
+    private SocketFactory socketFactory;
+    private ClientConnectionPool connectionPool;
+    private PacketConnection[] packetConnections;
 
-    protected Client(Logger logger, String host, int port, SSLCertificate sslCertificate, LogsFile genericsLogs, boolean genericsLogsInit)
+    protected Client(Logger logger, String host, int port, SSLCertificate sslCertificate, LogsFile genericsLogs, boolean genericsLogsInit, ExecutorService executor, int maxConnections, long acquireTimeoutMillis, long requestTimeoutMillis, boolean tcpNoDelay)
     {
         this.logger = logger;
         this.host = host;
@@ -38,6 +51,11 @@ public class Client
         this.sslCertificate = sslCertificate;
         this.genericsLogs = genericsLogs;
         this.genericsLogsInit = genericsLogsInit;
+        this.executor = executor;
+        this.maxConnections = maxConnections;
+        this.acquireTimeoutMillis = acquireTimeoutMillis;
+        this.requestTimeoutMillis = requestTimeoutMillis;
+        this.tcpNoDelay = tcpNoDelay;
     }
 
     public void init()
@@ -71,36 +89,28 @@ public class Client
                 return;
             }
 
-            try
-            {
-                logger.log("Generation of client socket", genericsLogs);
-                clientSocket = Objects.requireNonNull(sslContext).getSocketFactory().createSocket(host, port);
-                ((SSLSocket) clientSocket).setEnabledProtocols(new String[]{"TLSv1.3"});
-                logger.log("Client socket has been generated", genericsLogs);
-            }
-            catch (IOException exception)
-            {
-                logger.error("Error during generation of client socket", exception, genericsLogs);
-                close();
-                return;
-            }
+            socketFactory = Objects.requireNonNull(sslContext).getSocketFactory();
         }
         else
         {
             logger.log("Client is initializing without SSl (http mode)", genericsLogs);
+            socketFactory = SocketFactory.getDefault();
+        }
 
-            try
-            {
-                logger.log("Generation of client socket", genericsLogs);
-                clientSocket = SocketFactory.getDefault().createSocket(host, port);
-                logger.log("Client socket has been generated", genericsLogs);
-            }
-            catch (IOException exception)
-            {
-                logger.error("Error during generation of client socket", exception, genericsLogs);
-                close();
-                return;
-            }
+        connectionPool = new ClientConnectionPool(this::openConnection, maxConnections, acquireTimeoutMillis);
+        packetConnections = new PacketConnection[maxConnections];
+
+        try
+        {
+            logger.log("Generation of client socket", genericsLogs);
+            connectionPool.release(connectionPool.acquire());
+            logger.log("Client socket has been generated", genericsLogs);
+        }
+        catch (IOException | InterruptedException exception)
+        {
+            logger.error("Error during generation of client socket", exception, genericsLogs);
+            close();
+            return;
         }
 
         isInit = true;
@@ -112,52 +122,161 @@ public class Client
         if (!isInit)
         {
             logger.error("Client is not initialized so request can't be send", genericsLogs);
-            return new IComplete<>()
+            return FutureComplete.completed(Result.CLIENT_CLOSED);
+        }
+
+        return new FutureComplete<>(CompletableFuture.supplyAsync(() -> execute(requestExecutor), executor));
+    }
+
+    public Result send(Packet.C2S packet)
+    {
+        if (!isInit)
+        {
+            logger.error("Client is not initialized so packet can't be send", genericsLogs);
+            return Result.CLIENT_CLOSED;
+        }
+
+        try
+        {
+            packetConnection(nextRequestId.incrementAndGet()).send(packet, FrameDecoder.NO_REQUEST);
+            return Result.SUCCESS;
+        }
+        catch (IOException exception)
+        {
+            logger.error("Unable to send packet " + packet.getClass().getSimpleName(), exception, genericsLogs);
+            return Result.FAIL;
+        }
+    }
+
+    public IComplete<Packet.C2S> call(Packet.C2S request)
+    {
+        if (!isInit)
+        {
+            logger.error("Client is not initialized so request can't be send", genericsLogs);
+            return new FutureComplete<>(CompletableFuture.failedFuture(new IllegalStateException("Client is not initialized")));
+        }
+
+        final long requestId = nextRequestId.incrementAndGet();
+        final PacketConnection packetConnection = healthyPacketConnection(requestId);
+        if (packetConnection != null)
+        {
+            return new FutureComplete<>(packetConnection.call(request, requestId));
+        }
+
+        try
+        {
+            return new FutureComplete<>(CompletableFuture.supplyAsync(() ->
             {
-                @Override
-                public Result result()
+                try
                 {
-                    return Result.CLIENT_CLOSED;
+                    return packetConnection(requestId);
                 }
-
-                @Override
-                public void onComplete(Runnable onComplete)
+                catch (IOException exception)
                 {
-                    onComplete.run();
+                    logger.error("Unable to send request " + request.getClass().getSimpleName(), exception, genericsLogs);
+                    throw new CompletionException(exception);
                 }
-            };
+            }, executor).thenCompose(connection -> connection.call(request, requestId)));
         }
+        catch (RejectedExecutionException exception)
+        {
+            return new FutureComplete<>(CompletableFuture.failedFuture(new IOException("The client is closed", exception)));
+        }
+    }
 
-        return new IComplete<>()
+    private PacketConnection healthyPacketConnection(long requestId)
+    {
+        synchronized (packetConnections)
         {
-            @Override
-            public Result result()
+            final PacketConnection packetConnection = packetConnections[(int) (requestId % packetConnections.length)];
+            return packetConnection != null && packetConnection.isHealthy() ? packetConnection : null;
+        }
+    }
+
+    protected PacketConnection packetConnection(long requestId) throws IOException
+    {
+        final PacketConnection healthy = healthyPacketConnection(requestId);
+        if (healthy != null)
+        {
+            return healthy;
+        }
+
+        final int index = (int) (requestId % packetConnections.length);
+        final ClientConnection connection = connectionPool.openDedicated();
+        synchronized (packetConnections)
+        {
+            final PacketConnection packetConnection = packetConnections[index];
+            if (packetConnection != null && packetConnection.isHealthy())
             {
-                return requestExecutor.clientSideExecution(clientSocket, logger, genericsLogs);
+                connectionPool.discard(connection);
+                return packetConnection;
             }
 
-            @Override
-            public void onComplete(Runnable onComplete)
+            try
+            {
+                packetConnections[index] = new PacketConnection(connection, connectionPool, logger, genericsLogs, FrameDecoder.DEFAULT_MAX_FRAME_SIZE, requestTimeoutMillis);
+            }
+            catch (IOException exception)
             {
-                onComplete.run();
+                connectionPool.discard(connection);
+                throw exception;
             }
-        };
+            return packetConnections[index];
+        }
+    }
+
+    protected Result execute(IRequestExecutor requestExecutor)
+    {
+        final ClientConnection connection;
+        try
+        {
+            connection = connectionPool.acquire();
+        }
+        catch (IOException | InterruptedException exception)
+        {
+            logger.error("Unable to get a connection for request " + requestExecutor.identifier(), exception, genericsLogs);
+            return Result.FAIL;
+        }
+
+        try
+        {
+            return requestExecutor.clientSideExecution(connection.getSocket(), logger, genericsLogs);
+        }
+        finally
+        {
+            connectionPool.release(connection);
+        }
     }
 
     public void close()
     {
         logger.log("Stopping client", genericsLogs);
 
+        if (packetConnections != null)
+        {
+            synchronized (packetConnections)
+            {
+                for (PacketConnection packetConnection : packetConnections)
+                {
+                    if (packetConnection != null)
+                    {
+                        packetConnection.close();
+                    }
+                }
+            }
+        }
+
         try
         {
-            logger.log("Close client socket", genericsLogs);
-            clientSocket.close();
+            logger.log("Close client sockets", genericsLogs);
+            connectionPool.close();
         }
         catch (IOException | NullPointerException exception)
         {
-            logger.warn("Unable to close client socket", exception, genericsLogs);
+            logger.warn("Unable to close client sockets", exception, genericsLogs);
         }
 
+        executor.shutdown();
         logger.log("Client is stopped", genericsLogs);
 
         if (genericsLogsInit && genericsLogs != null)
@@ -166,6 +285,31 @@ public class Client
         }
     }
 
+    protected ClientConnection openConnection() throws IOException
+    {
+        final Socket socket = socketFactory.createSocket(host, port);
+        socket.setTcpNoDelay(tcpNoDelay);
+        if (socket instanceof SSLSocket)
+        {
+            ((SSLSocket) socket).setEnabledProtocols(new String[]{"TLSv1.3"});
+            try
+            {
+                ((SSLSocket) socket).startHandshake();
+            }
+            catch (IOException exception)
+            {
+                socket.close();
+                throw exception;
+            }
+        }
+        return new ClientConnection(socket);
+    }
+
+    public ClientConnectionPool getConnectionPool()
+    {
+        return connectionPool;
+    }
+
     public boolean isInit()
     {
         return isInit;
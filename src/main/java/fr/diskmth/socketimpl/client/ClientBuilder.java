@@ -4,6 +4,9 @@ import fr.diskmth.loggy.Logger;
 import fr.diskmth.loggy.LogsFile;
 import fr.diskmth.socketimpl.common.SSLCertificate;
 
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
 public class ClientBuilder
 {
     protected final Logger logger;
@@ -12,6 +15,11 @@ public class ClientBuilder
     protected SSLCertificate sslCertificate = null;
     protected LogsFile genericsLogs = null;
     protected boolean genericsLogsInit = false;
+    protected ExecutorService executor = null;
+    protected int maxConnections = 1;
+    protected long acquireTimeoutMillis = ClientConnectionPool.DEFAULT_ACQUIRE_TIMEOUT_MS;
+    protected long requestTimeoutMillis = PacketConnection.DEFAULT_REQUEST_TIMEOUT_MS;
+    protected boolean tcpNoDelay = false;
 
     public ClientBuilder(Logger logger)
     {
@@ -48,11 +56,49 @@ public class ClientBuilder
         return this;
     }
 
+    public ClientBuilder executor(ExecutorService executor)
+    {
+        this.executor = executor;
+        return this;
+    }
+
+    public ClientBuilder virtualThreads()
+    {
+        return executor(Executors.newVirtualThreadPerTaskExecutor());
+    }
+
+    public ClientBuilder connectionPool(int maxConnections)
+    {
+        this.maxConnections = maxConnections;
+        return this;
+    }
+
+    public ClientBuilder acquireTimeout(long acquireTimeoutMillis)
+    {
+        this.acquireTimeoutMillis = acquireTimeoutMillis;
+        return this;
+    }
+
+    public ClientBuilder requestTimeout(long requestTimeoutMillis)
+    {
+        this.requestTimeoutMillis = requestTimeoutMillis;
+        return this;
+    }
+
+    public ClientBuilder tcpNoDelay(boolean tcpNoDelay)
+    {
+        this.tcpNoDelay = tcpNoDelay;
+        return this;
+    }
+
     public Client build()
     {
         if (logger == null) throw new NullPointerException("Server logger can't be null");
         if (host == null) throw new NullPointerException("Server address can't be null");
+        if (maxConnections <= 0) throw new IllegalArgumentException("Max connections must be positive");
+        if (acquireTimeoutMillis <= 0) throw new IllegalArgumentException("Acquire timeout must be positive");
+        if (requestTimeoutMillis <= 0) throw new IllegalArgumentException("Request timeout must be positive");
 
-        return new Client(logger, host, port, sslCertificate, genericsLogs, genericsLogsInit);
+        return new Client(logger, host, port, sslCertificate, genericsLogs, genericsLogsInit, executor != null ? executor : Executors.newSingleThreadExecutor(), maxConnections, acquireTimeoutMillis, requestTimeoutMillis, tcpNoDelay);
     }
 }
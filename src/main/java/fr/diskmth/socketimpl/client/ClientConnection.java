@@ -0,0 +1,70 @@
+package fr.diskmth.socketimpl.client;
+
+import java.io.IOException;
+import java.net.Socket;
+import java.net.SocketTimeoutException;
+
+public class ClientConnection
+{
+    public static final long VALIDATE_AFTER_IDLE_MS = 1000;
+
+    private final Socket socket;
+
+    private volatile long idleSince = System.currentTimeMillis();
+
+    protected ClientConnection(Socket socket)
+    {
+        this.socket = socket;
+    }
+
+    public Socket getSocket()
+    {
+        return socket;
+    }
+
+    public boolean isHealthy()
+    {
+        return socket.isConnected() && !socket.isClosed() && !socket.isInputShutdown() && !socket.isOutputShutdown();
+    }
+
+    public boolean isPeerOpen()
+    {
+        if (System.currentTimeMillis() - idleSince < VALIDATE_AFTER_IDLE_MS)
+        {
+            return true;
+        }
+
+        try
+        {
+            final int timeout = socket.getSoTimeout();
+            socket.setSoTimeout(1);
+            try
+            {
+                socket.getInputStream().read();
+                return false;
+            }
+            catch (SocketTimeoutException exception)
+            {
+                return true;
+            }
+            finally
+            {
+                socket.setSoTimeout(timeout);
+            }
+        }
+        catch (IOException exception)
+        {
+            return false;
+        }
+    }
+
+    protected void markIdle()
+    {
+        idleSince = System.currentTimeMillis();
+    }
+
+    public void close() throws IOException
+    {
+        socket.close();
+    }
+}
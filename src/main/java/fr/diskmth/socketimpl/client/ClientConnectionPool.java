@@ -0,0 +1,240 @@
+package fr.diskmth.socketimpl.client;
+
+import java.io.IOException;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class ClientConnectionPool
+{
+    public static final long DEFAULT_ACQUIRE_TIMEOUT_MS = 30000;
+
+    private static final long WAIT_INTERVAL_MS = 100;
+
+    private final ConnectionFactory connectionFactory;
+    private final int maxConnections;
+    private final long acquireTimeoutMillis;
+    private final LinkedBlockingDeque<ClientConnection> idleConnections = new LinkedBlockingDeque<>();
+    private final Set<ClientConnection> connections = ConcurrentHashMap.newKeySet();
+    private final Set<ClientConnection> dedicatedConnections = ConcurrentHashMap.newKeySet();
+    private final AtomicInteger openConnections = new AtomicInteger();
+
+    private volatile boolean isClosed = false;
+
+    protected ClientConnectionPool(ConnectionFactory connectionFactory, int maxConnections, long acquireTimeoutMillis)
+    {
+        this.connectionFactory = connectionFactory;
+        this.maxConnections = maxConnections;
+        this.acquireTimeoutMillis = acquireTimeoutMillis;
+    }
+
+    public ClientConnection acquire() throws IOException, InterruptedException
+    {
+        final long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(acquireTimeoutMillis);
+        while (!isClosed)
+        {
+            ClientConnection connection = tryAcquire();
+            if (connection != null)
+            {
+                return connection;
+            }
+
+            final long remaining = deadline - System.nanoTime();
+            if (remaining <= 0)
+            {
+                throw new IOException("Timed out after " + acquireTimeoutMillis + "ms waiting for a pooled connection");
+            }
+
+            connection = idleConnections.pollFirst(Math.min(remaining, TimeUnit.MILLISECONDS.toNanos(WAIT_INTERVAL_MS)), TimeUnit.NANOSECONDS);
+            if (connection != null)
+            {
+                if (isUsable(connection))
+                {
+                    return connection;
+                }
+                discard(connection);
+            }
+        }
+
+        throw new IOException("The connection pool is closed");
+    }
+
+    public ClientConnection tryAcquire() throws IOException
+    {
+        if (isClosed)
+        {
+            throw new IOException("The connection pool is closed");
+        }
+
+        ClientConnection connection;
+        while ((connection = idleConnections.pollFirst()) != null)
+        {
+            if (isUsable(connection))
+            {
+                return connection;
+            }
+            discard(connection);
+        }
+
+        int open;
+        while ((open = openConnections.get()) < maxConnections)
+        {
+            if (!openConnections.compareAndSet(open, open + 1))
+            {
+                continue;
+            }
+
+            try
+            {
+                connection = connectionFactory.open();
+            }
+            catch (IOException exception)
+            {
+                openConnections.decrementAndGet();
+                throw exception;
+            }
+
+            connections.add(connection);
+            if (isClosed)
+            {
+                discard(connection);
+                throw new IOException("The connection pool is closed");
+            }
+            return connection;
+        }
+
+        return null;
+    }
+
+    public ClientConnection openDedicated() throws IOException
+    {
+        if (isClosed)
+        {
+            throw new IOException("The connection pool is closed");
+        }
+
+        final ClientConnection connection = connectionFactory.open();
+        dedicatedConnections.add(connection);
+        if (isClosed)
+        {
+            discard(connection);
+            throw new IOException("The connection pool is closed");
+        }
+        return connection;
+    }
+
+    private boolean isUsable(ClientConnection connection)
+    {
+        return connection.isHealthy() && connection.isPeerOpen();
+    }
+
+    public void release(ClientConnection connection)
+    {
+        if (!isClosed && connection.isHealthy())
+        {
+            connection.markIdle();
+            idleConnections.offerFirst(connection);
+        }
+        else
+        {
+            discard(connection);
+        }
+    }
+
+    public void discard(ClientConnection connection)
+    {
+        if (connections.remove(connection))
+        {
+            openConnections.decrementAndGet();
+        }
+        else
+        {
+            dedicatedConnections.remove(connection);
+        }
+
+        try
+        {
+            connection.close();
+        }
+        catch (IOException ignored) {}
+    }
+
+    public void close() throws IOException
+    {
+        isClosed = true;
+        idleConnections.clear();
+
+        IOException exception = null;
+        for (ClientConnection connection : connections)
+        {
+            if (!connections.remove(connection))
+            {
+                continue;
+            }
+
+            openConnections.decrementAndGet();
+            try
+            {
+                connection.close();
+            }
+            catch (IOException closeException)
+            {
+                exception = closeException;
+            }
+        }
+
+        for (ClientConnection connection : dedicatedConnections)
+        {
+            if (!dedicatedConnections.remove(connection))
+            {
+                continue;
+            }
+
+            try
+            {
+                connection.close();
+            }
+            catch (IOException closeException)
+            {
+                exception = closeException;
+            }
+        }
+
+        if (exception != null)
+        {
+            throw exception;
+        }
+    }
+
+    public int getOpenConnections()
+    {
+        return openConnections.get();
+    }
+
+    public int getIdleConnections()
+    {
+        return idleConnections.size();
+    }
+
+    public int getDedicatedConnections()
+    {
+        return dedicatedConnections.size();
+    }
+
+    public int getMaxConnections()
+    {
+        return maxConnections;
+    }
+
+    public long getAcquireTimeoutMillis()
+    {
+        return acquireTimeoutMillis;
+    }
+
+    public interface ConnectionFactory
+    {
+        ClientConnection open() throws IOException;
+    }
+}
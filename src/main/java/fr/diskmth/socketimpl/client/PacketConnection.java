@@ -0,0 +1,208 @@
+package fr.diskmth.socketimpl.client;
+
+import fr.diskmth.loggy.Logger;
+import fr.diskmth.loggy.LogsFile;
+import fr.diskmth.socketimpl.common.FrameDecoder;
+import fr.diskmth.socketimpl.common.FrameEncoder;
+import fr.diskmth.socketimpl.common.LongMap;
+import fr.diskmth.socketimpl.common.Packet;
+import fr.diskmth.socketimpl.common.PacketBuffer;
+import fr.diskmth.socketimpl.common.PacketContext;
+import fr.diskmth.socketimpl.common.PacketRegistry;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+public class PacketConnection
+{
+    public static final long DEFAULT_REQUEST_TIMEOUT_MS = 30000;
+
+    private final ClientConnection connection;
+    private final ClientConnectionPool connectionPool;
+    private final Logger logger;
+    private final LogsFile genericsLogs;
+    private final PacketContext.Client context;
+    private final FrameDecoder frameDecoder;
+    private final OutputStream output;
+    private final long requestTimeoutMillis;
+    private final LongMap<CompletableFuture<Packet.C2S>> inFlight = new LongMap<>();
+
+    private volatile boolean isClosed = false;
+
+    protected PacketConnection(ClientConnection connection, ClientConnectionPool connectionPool, Logger logger, LogsFile genericsLogs, int maxFrameSize, long requestTimeoutMillis) throws IOException
+    {
+        this.connection = connection;
+        this.connectionPool = connectionPool;
+        this.logger = logger;
+        this.genericsLogs = genericsLogs;
+        this.context = new PacketContext.Client(logger, genericsLogs);
+        this.frameDecoder = new FrameDecoder(maxFrameSize);
+        this.requestTimeoutMillis = requestTimeoutMillis;
+        this.output = connection.getSocket().getOutputStream();
+
+        final Thread readerThread = new Thread(this::read, "SocketImpl-PacketConnection-" + connection.getSocket().getLocalPort());
+        readerThread.setDaemon(true);
+        readerThread.start();
+    }
+
+    public void send(Packet.C2S packet, long requestId) throws IOException
+    {
+        final int packetId = PacketRegistry.indexOf(packet.getClass());
+        if (packetId < 0)
+        {
+            throw new IllegalArgumentException(packet.getClass().getName() + " is not registered");
+        }
+
+        final PacketBuffer.Writer writer = new PacketBuffer.Writer(FrameDecoder.HEADER_SIZE + FrameDecoder.REQUEST_ID_SIZE + packet.estimateSize());
+        final int start = FrameEncoder.begin(writer, packetId, requestId);
+        packet.send(writer, context);
+        FrameEncoder.end(writer, start);
+
+        synchronized (output)
+        {
+            output.write(writer.getBytes(), 0, writer.getPosition());
+            output.flush();
+        }
+    }
+
+    public CompletableFuture<Packet.C2S> call(Packet.C2S packet, long requestId)
+    {
+        final CompletableFuture<Packet.C2S> future = new CompletableFuture<>();
+
+        synchronized (inFlight)
+        {
+            if (isClosed)
+            {
+                future.completeExceptionally(new IOException("The packet connection is closed"));
+                return future;
+            }
+            inFlight.put(requestId, future);
+        }
+
+        future.orTimeout(requestTimeoutMillis, TimeUnit.MILLISECONDS).whenComplete((response, throwable) ->
+        {
+            synchronized (inFlight)
+            {
+                inFlight.remove(requestId);
+            }
+        });
+
+        try
+        {
+            send(packet, requestId);
+        }
+        catch (IOException | RuntimeException exception)
+        {
+            future.completeExceptionally(exception);
+        }
+
+        return future;
+    }
+
+    private void read()
+    {
+        Exception cause = null;
+        try
+        {
+            final InputStream input = connection.getSocket().getInputStream();
+
+            while (!isClosed && frameDecoder.readFrom(input) >= 0)
+            {
+                frameDecoder.decode(this::receivePacket);
+            }
+        }
+        catch (IOException | RuntimeException exception)
+        {
+            if (!isClosed)
+            {
+                logger.warn("Error while reading packets from the server", exception, genericsLogs);
+                cause = exception;
+            }
+        }
+        finally
+        {
+            close(cause);
+        }
+    }
+
+    private void receivePacket(int packetId, long requestId, PacketBuffer.Reader reader) throws IOException
+    {
+        final Packet.C2S packet;
+        try
+        {
+            packet = PacketRegistry.create(Packet.C2S.class, packetId);
+        }
+        catch (IllegalArgumentException | IllegalStateException exception)
+        {
+            throw new IOException("Unable to instantiate packet with id " + packetId, exception);
+        }
+
+        try
+        {
+            packet.receive(reader, context);
+        }
+        catch (UncheckedIOException exception)
+        {
+            throw exception.getCause();
+        }
+
+        if (requestId != FrameDecoder.NO_REQUEST)
+        {
+            final CompletableFuture<Packet.C2S> future;
+            synchronized (inFlight)
+            {
+                future = inFlight.remove(requestId);
+            }
+
+            if (future != null)
+            {
+                future.complete(packet);
+            }
+        }
+    }
+
+    public boolean isHealthy()
+    {
+        return !isClosed && connection.isHealthy();
+    }
+
+    public int inFlightCount()
+    {
+        synchronized (inFlight)
+        {
+            return inFlight.size();
+        }
+    }
+
+    public void close()
+    {
+        close(null);
+    }
+
+    private void close(Exception cause)
+    {
+        final List<CompletableFuture<Packet.C2S>> pending = new ArrayList<>();
+
+        synchronized (inFlight)
+        {
+            if (isClosed)
+            {
+                return;
+            }
+            isClosed = true;
+
+            inFlight.forEachValue(pending::add);
+            inFlight.clear();
+        }
+
+        pending.forEach(future -> future.completeExceptionally(new IOException("The packet connection is closed", cause)));
+
+        connectionPool.discard(connection);
+    }
+}
@@ -0,0 +1,306 @@
+package fr.diskmth.socketimpl.common;
+
+import fr.diskmth.loggy.Logger;
+import fr.diskmth.loggy.LogsFile;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Supplier;
+
+public class AsyncLogger
+{
+    public static final int DEFAULT_CAPACITY = 8192;
+    public static final int BATCH_SIZE = 256;
+    public static final long IDLE_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(10);
+
+    public enum Level
+    {
+        LOG,
+        WARN,
+        ERROR
+    }
+
+    private final Logger logger;
+    private final LogsFile[] reportLogs;
+    private final AtomicReferenceArray<Entry> slots;
+    private final int mask;
+    private final AtomicLong tail = new AtomicLong();
+    private final AtomicIntegerArray sampling = new AtomicIntegerArray(new int[]{1, 1, 1});
+    private final AtomicLongArray sampled = new AtomicLongArray(Level.values().length);
+    private final LongAdder dropped = new LongAdder();
+    private final LongAdder sampledOut = new LongAdder();
+    private final Object drainLock = new Object();
+
+    private volatile long head = 0;
+    private volatile boolean isRunning = false;
+    private volatile boolean isIdle = false;
+    private volatile Thread writer;
+    private long reportedDrops = 0;
+
+    public AsyncLogger(Logger logger, int capacity, LogsFile... reportLogs)
+    {
+        if (capacity <= 0)
+        {
+            throw new IllegalArgumentException("Async logs capacity must be positive");
+        }
+
+        final int size = Integer.highestOneBit(Math.min(capacity, 1 << 30) * 2 - 1);
+        this.logger = logger;
+        this.reportLogs = reportLogs;
+        this.slots = new AtomicReferenceArray<>(size);
+        this.mask = size - 1;
+    }
+
+    public AsyncLogger sample(Level level, int oneIn)
+    {
+        if (oneIn <= 0)
+        {
+            throw new IllegalArgumentException("Sampling rate must be positive");
+        }
+
+        sampling.set(level.ordinal(), oneIn);
+        return this;
+    }
+
+    public synchronized void start()
+    {
+        if (isRunning)
+        {
+            return;
+        }
+
+        isRunning = true;
+        writer = new Thread(this::run, "SocketImpl-AsyncLogger");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    public void close()
+    {
+        final Thread writer;
+        synchronized (this)
+        {
+            if (!isRunning)
+            {
+                return;
+            }
+
+            isRunning = false;
+            writer = this.writer;
+            this.writer = null;
+        }
+
+        LockSupport.unpark(writer);
+        try
+        {
+            writer.join();
+        }
+        catch (InterruptedException exception)
+        {
+            Thread.currentThread().interrupt();
+        }
+
+        while (drainBatch() > 0)
+        {
+            Thread.onSpinWait();
+        }
+    }
+
+    /*---------------------------------------- Producers ----------------------------------------*/
+
+    public void log(Supplier<String> message, LogsFile... logsFiles)
+    {
+        offer(Level.LOG, message, null, logsFiles);
+    }
+
+    public void warn(Supplier<String> message, LogsFile... logsFiles)
+    {
+        offer(Level.WARN, message, null, logsFiles);
+    }
+
+    public void warn(Supplier<String> message, Throwable throwable, LogsFile... logsFiles)
+    {
+        offer(Level.WARN, message, throwable, logsFiles);
+    }
+
+    public void error(Supplier<String> message, LogsFile... logsFiles)
+    {
+        offer(Level.ERROR, message, null, logsFiles);
+    }
+
+    public void error(Supplier<String> message, Throwable throwable, LogsFile... logsFiles)
+    {
+        offer(Level.ERROR, message, throwable, logsFiles);
+    }
+
+    private void offer(Level level, Supplier<String> message, Throwable throwable, LogsFile[] logsFiles)
+    {
+        final int rate = sampling.get(level.ordinal());
+        if (rate > 1 && sampled.getAndIncrement(level.ordinal()) % rate != 0)
+        {
+            sampledOut.increment();
+            return;
+        }
+
+        long sequence;
+        do
+        {
+            sequence = tail.get();
+            if (sequence - head > mask)
+            {
+                dropped.increment();
+                return;
+            }
+        }
+        while (!tail.compareAndSet(sequence, sequence + 1));
+
+        slots.set((int) sequence & mask, new Entry(level, message, throwable, logsFiles));
+
+        if (isIdle)
+        {
+            LockSupport.unpark(writer);
+        }
+    }
+
+    /*---------------------------------------- Writer ----------------------------------------*/
+
+    private void run()
+    {
+        while (isRunning)
+        {
+            if (drainBatch() > 0)
+            {
+                continue;
+            }
+
+            isIdle = true;
+            if (slots.get((int) head & mask) == null && isRunning)
+            {
+                LockSupport.parkNanos(this, IDLE_PARK_NANOS);
+            }
+            isIdle = false;
+        }
+    }
+
+    private int drainBatch()
+    {
+        int drained = 0;
+        synchronized (drainLock)
+        {
+            while (drained < BATCH_SIZE)
+            {
+                final long sequence = head;
+                final int index = (int) sequence & mask;
+                final Entry entry = slots.get(index);
+                if (entry == null)
+                {
+                    break;
+                }
+
+                slots.set(index, null);
+                head = sequence + 1;
+                write(entry);
+                drained++;
+            }
+
+            final long drops = dropped.sum();
+            if (drops != reportedDrops)
+            {
+                logger.warn((drops - reportedDrops) + " log messages dropped because the async logs buffer was full", reportLogs);
+                reportedDrops = drops;
+            }
+        }
+        return drained;
+    }
+
+    private void write(Entry entry)
+    {
+        try
+        {
+            final String message = entry.message.get();
+            if (entry.level == Level.LOG)
+            {
+                logger.log(message, entry.logsFiles);
+            }
+            else if (entry.level == Level.WARN)
+            {
+                if (entry.throwable != null)
+                {
+                    logger.warn(message, entry.throwable, entry.logsFiles);
+                }
+                else
+                {
+                    logger.warn(message, entry.logsFiles);
+                }
+            }
+            else
+            {
+                if (entry.throwable != null)
+                {
+                    logger.error(message, entry.throwable, entry.logsFiles);
+                }
+                else
+                {
+                    logger.error(message, entry.logsFiles);
+                }
+            }
+        }
+        catch (RuntimeException exception)
+        {
+            logger.error("Unable to write an async log message", exception, reportLogs);
+        }
+    }
+
+    /*---------------------------------------- Getters ----------------------------------------*/
+
+    public Logger getLogger()
+    {
+        return logger;
+    }
+
+    public int getCapacity()
+    {
+        return mask + 1;
+    }
+
+    public int getPending()
+    {
+        return (int) (tail.get() - head);
+    }
+
+    public long getDropped()
+    {
+        return dropped.sum();
+    }
+
+    public long getSampledOut()
+    {
+        return sampledOut.sum();
+    }
+
+    public boolean isRunning()
+    {
+        return isRunning;
+    }
+
+    private static final class Entry
+    {
+        private final Level level;
+        private final Supplier<String> message;
+        private final Throwable throwable;
+        private final LogsFile[] logsFiles;
+
+        private Entry(Level level, Supplier<String> message, Throwable throwable, LogsFile[] logsFiles)
+        {
+            this.level = level;
+            this.message = message;
+            this.throwable = throwable;
+            this.logsFiles = logsFiles;
+        }
+    }
+}
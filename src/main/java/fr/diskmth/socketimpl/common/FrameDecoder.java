@@ -0,0 +1,118 @@
+package fr.diskmth.socketimpl.common;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+
+public class FrameDecoder
+{
+    public static final int HEADER_SIZE = 8;
+    public static final int DEFAULT_MAX_FRAME_SIZE = 1024 * 1024;
+    public static final int REQUEST_FLAG = 0x80000000;
+    public static final int REQUEST_ID_SIZE = 8;
+    public static final long NO_REQUEST = 0;
+
+    private static final int INITIAL_CAPACITY = 1024;
+
+    private final int maxFrameSize;
+    private final PacketBuffer.Reader reader = new PacketBuffer.Reader();
+
+    private ByteBuffer buffer;
+
+    public FrameDecoder(int maxFrameSize)
+    {
+        this(maxFrameSize, null);
+    }
+
+    public FrameDecoder(int maxFrameSize, StringCache stringCache)
+    {
+        this.maxFrameSize = maxFrameSize;
+        this.buffer = ByteBuffer.allocate(Math.min(INITIAL_CAPACITY, HEADER_SIZE + maxFrameSize));
+        this.reader.setStringCache(stringCache);
+    }
+
+    public int readFrom(InputStream inputStream) throws IOException
+    {
+        ensureWritable();
+        final int read = inputStream.read(buffer.array(), buffer.arrayOffset() + buffer.position(), buffer.remaining());
+        if (read > 0)
+        {
+            buffer.position(buffer.position() + read);
+        }
+        return read;
+    }
+
+    public int readFrom(ReadableByteChannel channel) throws IOException
+    {
+        ensureWritable();
+        return channel.read(buffer);
+    }
+
+    public void decode(FrameHandler handler) throws IOException
+    {
+        buffer.flip();
+
+        while (buffer.remaining() >= HEADER_SIZE)
+        {
+            final int start = buffer.position();
+            final int length = buffer.getInt(start);
+
+            if (length < 0 || length > maxFrameSize)
+            {
+                throw new IOException("Frame of " + length + " bytes exceeds the maximum frame size of " + maxFrameSize + " bytes");
+            }
+
+            if (buffer.remaining() < HEADER_SIZE + length)
+            {
+                if (buffer.capacity() < HEADER_SIZE + length)
+                {
+                    grow(HEADER_SIZE + length);
+                    return;
+                }
+                break;
+            }
+
+            final int header = buffer.getInt(start + 4);
+            buffer.position(start + HEADER_SIZE + length);
+
+            if ((header & REQUEST_FLAG) != 0)
+            {
+                if (length < REQUEST_ID_SIZE)
+                {
+                    throw new IOException("Request frame of " + length + " bytes is too short to hold a request id");
+                }
+
+                final long requestId = buffer.getLong(start + HEADER_SIZE);
+                reader.reassign(buffer.slice(start + HEADER_SIZE + REQUEST_ID_SIZE, length - REQUEST_ID_SIZE));
+                handler.onFrame(header & ~REQUEST_FLAG, requestId, reader);
+            }
+            else
+            {
+                reader.reassign(buffer.slice(start + HEADER_SIZE, length));
+                handler.onFrame(header, NO_REQUEST, reader);
+            }
+        }
+
+        buffer.compact();
+    }
+
+    private void ensureWritable()
+    {
+        if (!buffer.hasRemaining() && buffer.capacity() < HEADER_SIZE + maxFrameSize)
+        {
+            buffer.flip();
+            grow(Math.min(buffer.capacity() * 2, HEADER_SIZE + maxFrameSize));
+        }
+    }
+
+    private void grow(int capacity)
+    {
+        buffer = ByteBuffer.allocate(capacity).put(buffer);
+    }
+
+    public interface FrameHandler
+    {
+        void onFrame(int packetId, long requestId, PacketBuffer.Reader reader) throws IOException;
+    }
+}
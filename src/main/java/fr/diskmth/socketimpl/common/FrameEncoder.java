@@ -0,0 +1,37 @@
+package fr.diskmth.socketimpl.common;
+
+public class FrameEncoder
+{
+    public static int begin(PacketBuffer.Writer writer, int packetId)
+    {
+        return begin(writer, packetId, FrameDecoder.NO_REQUEST);
+    }
+
+    public static int begin(PacketBuffer.Writer writer, int packetId, long requestId)
+    {
+        final int start = writer.byteBuffer.position();
+        writer.writeInt(0);
+
+        if (requestId != FrameDecoder.NO_REQUEST)
+        {
+            writer.writeInt(packetId | FrameDecoder.REQUEST_FLAG);
+            writer.writeLong(requestId);
+        }
+        else
+        {
+            writer.writeInt(packetId);
+        }
+
+        return start;
+    }
+
+    public static void end(PacketBuffer.Writer writer, int start)
+    {
+        end(writer, start, 0);
+    }
+
+    public static void end(PacketBuffer.Writer writer, int start, int trailingBytes)
+    {
+        writer.byteBuffer.putInt(start, writer.byteBuffer.position() - start - FrameDecoder.HEADER_SIZE + trailingBytes);
+    }
+}
@@ -0,0 +1,178 @@
+package fr.diskmth.socketimpl.common;
+
+import java.util.Arrays;
+import java.util.function.Consumer;
+
+public class LongMap<V>
+{
+    private static final long EMPTY = 0;
+
+    private long[] keys;
+    private Object[] values;
+    private int size = 0;
+
+    public LongMap(int expectedSize)
+    {
+        final int capacity = Integer.highestOneBit(Math.max(4, expectedSize * 2 - 1)) << 1;
+        this.keys = new long[capacity];
+        this.values = new Object[capacity];
+    }
+
+    public LongMap()
+    {
+        this(16);
+    }
+
+    public V get(long key)
+    {
+        final int index = indexOf(key);
+        return index >= 0 ? valueAt(index) : null;
+    }
+
+    public V put(long key, V value)
+    {
+        if (key == EMPTY) throw new IllegalArgumentException("Key " + EMPTY + " is reserved");
+
+        final int mask = keys.length - 1;
+        int index = mix(key) & mask;
+        while (keys[index] != EMPTY)
+        {
+            if (keys[index] == key)
+            {
+                final V previous = valueAt(index);
+                values[index] = value;
+                return previous;
+            }
+            index = (index + 1) & mask;
+        }
+
+        keys[index] = key;
+        values[index] = value;
+
+        if (++size * 2 > keys.length)
+        {
+            rehash(keys.length * 2);
+        }
+        return null;
+    }
+
+    public V remove(long key)
+    {
+        int index = indexOf(key);
+        if (index < 0)
+        {
+            return null;
+        }
+
+        final V previous = valueAt(index);
+        final int mask = keys.length - 1;
+        keys[index] = EMPTY;
+        values[index] = null;
+        size--;
+
+        index = (index + 1) & mask;
+        while (keys[index] != EMPTY)
+        {
+            final long movedKey = keys[index];
+            final V movedValue = valueAt(index);
+            keys[index] = EMPTY;
+            values[index] = null;
+            size--;
+            put(movedKey, movedValue);
+            index = (index + 1) & mask;
+        }
+
+        return previous;
+    }
+
+    public int size()
+    {
+        return size;
+    }
+
+    public boolean isEmpty()
+    {
+        return size == 0;
+    }
+
+    public void forEachValue(Consumer<V> consumer)
+    {
+        for (int i = 0; i < keys.length; i++)
+        {
+            if (keys[i] != EMPTY)
+            {
+                consumer.accept(valueAt(i));
+            }
+        }
+    }
+
+    public void clear()
+    {
+        Arrays.fill(keys, EMPTY);
+        Arrays.fill(values, null);
+        size = 0;
+    }
+
+    private int indexOf(long key)
+    {
+        if (key == EMPTY)
+        {
+            return -1;
+        }
+
+        final int mask = keys.length - 1;
+        int index = mix(key) & mask;
+        while (keys[index] != EMPTY)
+        {
+            if (keys[index] == key)
+            {
+                return index;
+            }
+            index = (index + 1) & mask;
+        }
+        return -1;
+    }
+
+    private void rehash(int capacity)
+    {
+        final long[] oldKeys = keys;
+        final Object[] oldValues = values;
+        keys = new long[capacity];
+        values = new Object[capacity];
+        size = 0;
+
+        for (int i = 0; i < oldKeys.length; i++)
+        {
+            if (oldKeys[i] != EMPTY)
+            {
+                insert(oldKeys[i], oldValues[i]);
+            }
+        }
+    }
+
+    private void insert(long key, Object value)
+    {
+        final int mask = keys.length - 1;
+        int index = mix(key) & mask;
+        while (keys[index] != EMPTY)
+        {
+            index = (index + 1) & mask;
+        }
+
+        keys[index] = key;
+        values[index] = value;
+        size++;
+    }
+
+    @SuppressWarnings("unchecked")
+    private V valueAt(int index)
+    {
+        return (V) values[index];
+    }
+
+    private static int mix(long key)
+    {
+        final long hash = key * 0x9E3779B97F4A7C15L;
+        return (int) (hash ^ (hash >>> 32));
+    }
+}
@@ -4,6 +4,21 @@ public abstract class Packet
 {
     public Packet() {}
 
+    public int estimateSize()
+    {
+        return 0;
+    }
+
+    public Priority priority()
+    {
+        return Priority.NORMAL;
+    }
+
+    public enum Priority
+    {
+        HIGH, NORMAL, LOW
+    }
+
     public static abstract class C2S extends Packet
     {
         public abstract void send(PacketBuffer.Writer writer, PacketContext.Client context);
@@ -1,6 +1,10 @@
 package fr.diskmth.socketimpl.common;
 
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
 import java.nio.charset.StandardCharsets;
 import java.util.Objects;
 import java.util.UUID;
@@ -16,12 +20,24 @@ public abstract class PacketBuffer
 
     public byte[] getBytes()
     {
-        return byteBuffer.array();
+        if (byteBuffer.hasArray())
+        {
+            return byteBuffer.array();
+        }
+
+        final byte[] bytes = new byte[byteBuffer.capacity()];
+        byteBuffer.duplicate().clear().get(bytes);
+        return bytes;
     }
 
     public int getSize()
     {
-        return getBytes().length;
+        return byteBuffer.capacity();
+    }
+
+    public int getPosition()
+    {
+        return byteBuffer.position();
     }
 
     public void flush()
@@ -31,6 +47,9 @@ public abstract class PacketBuffer
 
     public static class Reader extends PacketBuffer
     {
+        private StringCache stringCache = null;
+        private byte[] stringBytes = new byte[0];
+
         public Reader(byte... bytes)
         {
             super(ByteBuffer.wrap(bytes));
@@ -41,11 +60,26 @@ public abstract class PacketBuffer
             byteBuffer = ByteBuffer.wrap(bytes);
         }
 
+        public void reassign(ByteBuffer byteBuffer)
+        {
+            this.byteBuffer = byteBuffer;
+        }
+
+        public void setStringCache(StringCache stringCache)
+        {
+            this.stringCache = stringCache;
+        }
+
         public boolean available()
         {
             return this.byteBuffer.hasRemaining();
         }
 
+        public int remaining()
+        {
+            return this.byteBuffer.remaining();
+        }
+
         public byte readByte()
         {
             return this.byteBuffer.get();
@@ -86,17 +120,114 @@ public abstract class PacketBuffer
             return (char) this.readByte();
         }
 
-        public String readString()
+        public int readVarInt()
+        {
+            int value = 0;
+            for (int shift = 0; shift < 35; shift += 7)
+            {
+                final byte b = this.readByte();
+                value |= (b & 0x7F) << shift;
+                if ((b & 0x80) == 0)
+                {
+                    return value;
+                }
+            }
+            throw new IllegalStateException("VarInt is too big");
+        }
+
+        public long readVarLong()
+        {
+            long value = 0;
+            for (int shift = 0; shift < 70; shift += 7)
+            {
+                final byte b = this.readByte();
+                value |= (long) (b & 0x7F) << shift;
+                if ((b & 0x80) == 0)
+                {
+                    return value;
+                }
+            }
+            throw new IllegalStateException("VarLong is too big");
+        }
+
+        public int readSignedVarInt()
         {
-            final int length = this.readInt();
+            final int value = this.readVarInt();
+            return (value >>> 1) ^ -(value & 1);
+        }
+
+        public long readSignedVarLong()
+        {
+            final long value = this.readVarLong();
+            return (value >>> 1) ^ -(value & 1);
+        }
+
+        public void readBytes(byte[] destination)
+        {
+            this.byteBuffer.get(destination);
+        }
+
+        public byte[] readBytes(int length)
+        {
+            this.checkLength(length);
             final byte[] bytes = new byte[length];
             this.byteBuffer.get(bytes);
-            return new String(bytes, StandardCharsets.UTF_8);
+            return bytes;
+        }
+
+        public byte[] readByteArray()
+        {
+            return this.readBytes(this.readVarInt());
+        }
+
+        public ByteBuffer readSlice(int length)
+        {
+            this.checkLength(length);
+            final ByteBuffer slice = this.byteBuffer.slice(this.byteBuffer.position(), length);
+            this.byteBuffer.position(this.byteBuffer.position() + length);
+            return slice;
+        }
+
+        public String readString()
+        {
+            final int length = this.readVarInt();
+            this.checkLength(length);
+            final int position = this.byteBuffer.position();
+            final String value;
+
+            if (stringCache != null && length <= stringCache.getMaxLength())
+            {
+                value = stringCache.get(this.byteBuffer, position, length);
+            }
+            else if (this.byteBuffer.hasArray())
+            {
+                value = new String(this.byteBuffer.array(), this.byteBuffer.arrayOffset() + position, length, StandardCharsets.UTF_8);
+            }
+            else
+            {
+                if (stringBytes.length < length)
+                {
+                    stringBytes = new byte[length];
+                }
+                this.byteBuffer.get(position, stringBytes, 0, length);
+                value = new String(stringBytes, 0, length, StandardCharsets.UTF_8);
+            }
+
+            this.byteBuffer.position(position + length);
+            return value;
         }
 
         public UUID readUUID()
         {
-            return UUID.fromString(this.readString());
+            return new UUID(this.readLong(), this.readLong());
+        }
+
+        private void checkLength(int length)
+        {
+            if (length < 0 || length > this.byteBuffer.remaining())
+            {
+                throw new UncheckedIOException(new EOFException("Length of " + length + " bytes exceeds the " + this.byteBuffer.remaining() + " remaining bytes"));
+            }
         }
     }
 
@@ -107,8 +238,31 @@ public abstract class PacketBuffer
             super(ByteBuffer.allocate(size));
         }
 
+        protected Writer(ByteBuffer byteBuffer)
+        {
+            super(byteBuffer);
+        }
+
+        public ByteBuffer toByteBuffer()
+        {
+            return this.byteBuffer.duplicate().flip();
+        }
+
+        public void ensureCapacity(int bytes)
+        {
+            if (this.byteBuffer.remaining() >= bytes)
+            {
+                return;
+            }
+
+            final int capacity = Math.max(this.byteBuffer.capacity() * 2, this.byteBuffer.position() + bytes);
+            final ByteBuffer grown = this.byteBuffer.isDirect() ? ByteBuffer.allocateDirect(capacity) : ByteBuffer.allocate(capacity);
+            this.byteBuffer = grown.put(this.byteBuffer.flip());
+        }
+
         public void writeByte(byte value)
         {
+            this.ensureCapacity(Byte.BYTES);
             this.byteBuffer.put(value);
         }
 
@@ -119,26 +273,31 @@ public abstract class PacketBuffer
 
         public void writeShort(short value)
         {
+            this.ensureCapacity(Short.BYTES);
             this.byteBuffer.putShort(value);
         }
 
         public void writeInt(int value)
         {
+            this.ensureCapacity(Integer.BYTES);
             this.byteBuffer.putInt(value);
         }
 
         public void writeLong(long value)
         {
+            this.ensureCapacity(Long.BYTES);
             this.byteBuffer.putLong(value);
         }
 
         public void writeFloat(float value)
         {
+            this.ensureCapacity(Float.BYTES);
             this.byteBuffer.putFloat(value);
         }
 
         public void writeDouble(double value)
         {
+            this.ensureCapacity(Double.BYTES);
             this.byteBuffer.putDouble(value);
         }
 
@@ -147,20 +306,86 @@ public abstract class PacketBuffer
             this.writeByte((byte) value);
         }
 
-        public void writeString(String value)
+        public void writeVarInt(int value)
         {
-            Objects.requireNonNull(value);
-            final byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
-            this.writeInt(bytes.length);
-            for (byte b : bytes)
+            this.ensureCapacity(5);
+            while ((value & ~0x7F) != 0)
+            {
+                this.byteBuffer.put((byte) ((value & 0x7F) | 0x80));
+                value >>>= 7;
+            }
+            this.byteBuffer.put((byte) value);
+        }
+
+        public void writeVarLong(long value)
+        {
+            this.ensureCapacity(10);
+            while ((value & ~0x7FL) != 0)
+            {
+                this.byteBuffer.put((byte) ((value & 0x7F) | 0x80));
+                value >>>= 7;
+            }
+            this.byteBuffer.put((byte) value);
+        }
+
+        public void writeSignedVarInt(int value)
+        {
+            this.writeVarInt((value << 1) ^ (value >> 31));
+        }
+
+        public void writeSignedVarLong(long value)
+        {
+            this.writeVarLong((value << 1) ^ (value >> 63));
+        }
+
+        public void writeBytes(byte[] value, int offset, int length)
+        {
+            this.ensureCapacity(length);
+            this.byteBuffer.put(value, offset, length);
+        }
+
+        public void writeBytes(ByteBuffer value)
+        {
+            this.ensureCapacity(value.remaining());
+            this.byteBuffer.put(value);
+        }
+
+        public void writeBytes(FileChannel channel, long position, int length) throws IOException
+        {
+            this.ensureCapacity(length);
+            final ByteBuffer target = this.byteBuffer.slice(this.byteBuffer.position(), length);
+            while (target.hasRemaining())
             {
-                this.writeByte(b);
+                if (channel.read(target, position + target.position()) < 0)
+                {
+                    throw new EOFException("File ended " + target.remaining() + " bytes before the expected length");
+                }
             }
+            this.byteBuffer.position(this.byteBuffer.position() + length);
+        }
+
+        public void writeBytes(byte[] value)
+        {
+            this.writeBytes(Objects.requireNonNull(value), 0, value.length);
+        }
+
+        public void writeByteArray(byte[] value)
+        {
+            Objects.requireNonNull(value);
+            this.writeVarInt(value.length);
+            this.writeBytes(value, 0, value.length);
+        }
+
+        public void writeString(String value)
+        {
+            this.writeByteArray(Objects.requireNonNull(value).getBytes(StandardCharsets.UTF_8));
         }
 
         public void writeUUID(UUID value)
         {
-            this.writeString(Objects.requireNonNull(value.toString()));
+            Objects.requireNonNull(value);
+            this.writeLong(value.getMostSignificantBits());
+            this.writeLong(value.getLeastSignificantBits());
         }
     }
 }
@@ -0,0 +1,115 @@
+package fr.diskmth.socketimpl.common;
+
+import java.nio.ByteBuffer;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+public class PacketBufferPool
+{
+    public static final int DEFAULT_BUFFER_SIZE = 8 * 1024;
+    public static final int DEFAULT_MAX_POOLED = 256;
+    public static final int MAX_RETAINED_SIZE = 1024 * 1024;
+
+    private final int bufferSize;
+    private final int maxPooled;
+    private final boolean direct;
+    private final Queue<PacketBuffer.Writer> writers = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger pooledCount = new AtomicInteger();
+    private final AtomicLong acquiredCount = new AtomicLong();
+    private final AtomicLong releasedCount = new AtomicLong();
+    private final AtomicLong createdCount = new AtomicLong();
+
+    public PacketBufferPool(int bufferSize, int maxPooled, boolean direct)
+    {
+        this.bufferSize = bufferSize;
+        this.maxPooled = maxPooled;
+        this.direct = direct;
+    }
+
+    public PacketBufferPool()
+    {
+        this(DEFAULT_BUFFER_SIZE, DEFAULT_MAX_POOLED, false);
+    }
+
+    public PacketBuffer.Writer acquireWriter()
+    {
+        return acquireWriter(0);
+    }
+
+    public PacketBuffer.Writer acquireWriter(int sizeHint)
+    {
+        acquiredCount.incrementAndGet();
+
+        PacketBuffer.Writer writer = writers.poll();
+        if (writer != null)
+        {
+            pooledCount.decrementAndGet();
+        }
+        else
+        {
+            createdCount.incrementAndGet();
+            final int size = Math.max(bufferSize, sizeHint);
+            writer = new PacketBuffer.Writer(direct ? ByteBuffer.allocateDirect(size) : ByteBuffer.allocate(size));
+        }
+
+        writer.ensureCapacity(sizeHint);
+        return writer;
+    }
+
+    public void release(PacketBuffer.Writer writer)
+    {
+        releasedCount.incrementAndGet();
+        writer.flush();
+
+        if (writer.getSize() > MAX_RETAINED_SIZE)
+        {
+            return;
+        }
+
+        if (pooledCount.incrementAndGet() <= maxPooled)
+        {
+            writers.add(writer);
+        }
+        else
+        {
+            pooledCount.decrementAndGet();
+        }
+    }
+
+    public int getBufferSize()
+    {
+        return bufferSize;
+    }
+
+    public boolean isDirect()
+    {
+        return direct;
+    }
+
+    public int getPooledCount()
+    {
+        return pooledCount.get();
+    }
+
+    public long getAcquiredCount()
+    {
+        return acquiredCount.get();
+    }
+
+    public long getReleasedCount()
+    {
+        return releasedCount.get();
+    }
+
+    public long getCreatedCount()
+    {
+        return createdCount.get();
+    }
+
+    public long getInUseCount()
+    {
+        return acquiredCount.get() - releasedCount.get();
+    }
+}
@@ -35,16 +35,50 @@ public abstract class PacketContext
     public static class Server extends PacketContext
     {
         private final LogsFile serverCallsLogs;
+        private final Replier replier;
+        private final long requestId;
 
         public Server(Logger logger, LogsFile genericsLogs, LogsFile serverCallsLogs)
+        {
+            this(logger, genericsLogs, serverCallsLogs, null, FrameDecoder.NO_REQUEST);
+        }
+
+        public Server(Logger logger, LogsFile genericsLogs, LogsFile serverCallsLogs, Replier replier, long requestId)
         {
             super(logger, genericsLogs);
             this.serverCallsLogs = serverCallsLogs;
+            this.replier = replier;
+            this.requestId = requestId;
         }
 
         public LogsFile getServerCallsLogs()
         {
             return serverCallsLogs;
         }
+
+        public long getRequestId()
+        {
+            return requestId;
+        }
+
+        public boolean isRequest()
+        {
+            return requestId != FrameDecoder.NO_REQUEST;
+        }
+
+        public void reply(Packet.S2C packet)
+        {
+            if (!isRequest() || replier == null)
+            {
+                throw new IllegalStateException("The received packet was not sent as a request");
+            }
+
+            replier.reply(packet, requestId);
+        }
+
+        public interface Replier
+        {
+            void reply(Packet.S2C packet, long requestId);
+        }
     }
 }
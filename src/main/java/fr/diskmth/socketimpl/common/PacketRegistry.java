@@ -1,29 +1,141 @@
 package fr.diskmth.socketimpl.common;
 
-import java.util.ArrayList;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.util.Arrays;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.function.Supplier;
 
 public class PacketRegistry
 {
-    private static final List<Class<? extends Packet>> registeredPackets = new ArrayList<>();
+    public static final int MAX_PACKET_ID = 0xFFFF;
+
+    private static volatile Snapshot snapshot = new Snapshot(Map.of(), new Registration[0]);
+    private static volatile boolean isFrozen = false;
 
     public static int indexOf(Class<? extends Packet> packet)
     {
-        return registeredPackets.indexOf(packet);
+        final Integer id = snapshot.ids.get(packet);
+        return id != null ? id : -1;
     }
 
     public static <T extends Class<? extends Packet>> T get(T packetType, int index)
     {
-        return (T) registeredPackets.get(index);
+        @SuppressWarnings("unchecked")
+        final T packet = (T) snapshot.check(packetType, index);
+        return packet;
+    }
+
+    public static <T extends Packet> T create(Class<T> packetType, int index)
+    {
+        final Snapshot current = snapshot;
+        current.check(packetType, index);
+        return packetType.cast(current.registrations[index].factory.get());
+    }
+
+    public static synchronized <T extends Packet> void registerPacket(int id, Class<T> packet, Supplier<? extends T> factory)
+    {
+        if (isFrozen) throw new IllegalStateException("The packet registry is frozen");
+        if (id < 0 || id > MAX_PACKET_ID) throw new IllegalArgumentException("Packet id must be between 0 and " + MAX_PACKET_ID);
+        if (snapshot.ids.containsKey(packet)) throw new IllegalArgumentException(packet.getName() + " is already registered");
+        if (id < snapshot.registrations.length && snapshot.registrations[id] != null) throw new IllegalArgumentException("Packet id " + id + " is already used by " + snapshot.registrations[id].packet.getName());
+
+        final Map<Class<? extends Packet>, Integer> ids = new HashMap<>(snapshot.ids);
+        ids.put(packet, id);
+
+        final Registration[] registrations = Arrays.copyOf(snapshot.registrations, Math.max(snapshot.registrations.length, id + 1));
+        registrations[id] = new Registration(packet, factory);
+
+        snapshot = new Snapshot(Map.copyOf(ids), registrations);
+    }
+
+    public static <T extends Packet> void registerPacket(int id, Class<T> packet)
+    {
+        registerPacket(id, packet, constructorOf(packet));
+    }
+
+    public static synchronized void registerPacket(Class<? extends Packet> packet)
+    {
+        registerPacket(snapshot.registrations.length, packet);
     }
 
-    public static void registerPacket(Class<? extends Packet> packet)
+    public static synchronized void registerPackets(List<Class<? extends Packet>> packets)
     {
-        registeredPackets.add(packet);
+        packets.forEach(PacketRegistry::registerPacket);
     }
 
-    public static void registerPackets(List<Class<? extends Packet>> packets)
+    public static synchronized void freeze()
     {
-        registeredPackets.addAll(packets);
+        isFrozen = true;
+    }
+
+    public static boolean isFrozen()
+    {
+        return isFrozen;
+    }
+
+    private static <T extends Packet> Supplier<T> constructorOf(Class<T> packet)
+    {
+        final MethodHandle constructor;
+        try
+        {
+            constructor = MethodHandles.publicLookup().findConstructor(packet, MethodType.methodType(void.class));
+        }
+        catch (NoSuchMethodException | IllegalAccessException exception)
+        {
+            throw new IllegalArgumentException(packet.getName() + " must have a public no-args constructor", exception);
+        }
+
+        return () ->
+        {
+            try
+            {
+                return packet.cast(constructor.invoke());
+            }
+            catch (Throwable throwable)
+            {
+                throw new IllegalStateException("Unable to instantiate " + packet.getName(), throwable);
+            }
+        };
+    }
+
+    private static final class Snapshot
+    {
+        private final Map<Class<? extends Packet>, Integer> ids;
+        private final Registration[] registrations;
+
+        private Snapshot(Map<Class<? extends Packet>, Integer> ids, Registration[] registrations)
+        {
+            this.ids = ids;
+            this.registrations = registrations;
+        }
+
+        private Class<? extends Packet> check(Class<?> packetType, int index)
+        {
+            if (index < 0 || index >= registrations.length || registrations[index] == null)
+            {
+                throw new IllegalArgumentException("No packet is registered with id " + index);
+            }
+            if (!packetType.isAssignableFrom(registrations[index].packet))
+            {
+                throw new IllegalArgumentException("Packet with id " + index + " is not a " + packetType.getSimpleName());
+            }
+            return registrations[index].packet;
+        }
+    }
+
+    private static final class Registration
+    {
+        private final Class<? extends Packet> packet;
+        private final Supplier<? extends Packet> factory;
+
+        private Registration(Class<? extends Packet> packet, Supplier<? extends Packet> factory)
+        {
+            this.packet = packet;
+            this.factory = factory;
+        }
     }
-}
\ No newline at end of file
+}
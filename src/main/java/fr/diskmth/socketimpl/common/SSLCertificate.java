@@ -6,11 +6,19 @@ import java.security.KeyStore;
 
 public class SSLCertificate
 {
+    public static final int DEFAULT_SESSION_CACHE_SIZE = 20480;
+    public static final int DEFAULT_SESSION_TIMEOUT = 24 * 60 * 60;
+
     protected final InputStream keystore;
     protected final char[] keystorePassword;
     protected final InputStream truststore;
     protected final char[] truststorePassword;
 
+    protected int sessionCacheSize = DEFAULT_SESSION_CACHE_SIZE;
+    protected int sessionTimeout = DEFAULT_SESSION_TIMEOUT;
+
+    private SSLContext sslContext = null;
+
     public SSLCertificate(InputStream keystore, String keystorePassword, InputStream truststore, String truststorePassword)
     {
         this.keystore = keystore;
@@ -19,7 +27,37 @@ public class SSLCertificate
         this.truststorePassword = truststorePassword.toCharArray();
     }
 
-    public SSLContext createSSLContext() throws Exception
+    public synchronized SSLCertificate sessionCache(int sessionCacheSize, int sessionTimeout)
+    {
+        this.sessionCacheSize = sessionCacheSize;
+        this.sessionTimeout = sessionTimeout;
+
+        if (sslContext != null)
+        {
+            configureSessions(sslContext);
+        }
+        return this;
+    }
+
+    public synchronized SSLContext createSSLContext() throws Exception
+    {
+        if (sslContext == null)
+        {
+            sslContext = buildSSLContext();
+            configureSessions(sslContext);
+        }
+        return sslContext;
+    }
+
+    protected void configureSessions(SSLContext sslContext)
+    {
+        sslContext.getServerSessionContext().setSessionCacheSize(sessionCacheSize);
+        sslContext.getServerSessionContext().setSessionTimeout(sessionTimeout);
+        sslContext.getClientSessionContext().setSessionCacheSize(sessionCacheSize);
+        sslContext.getClientSessionContext().setSessionTimeout(sessionTimeout);
+    }
+
+    protected SSLContext buildSSLContext() throws Exception
     {
         final KeyStore keyStore = KeyStore.getInstance("PKCS12");
         keyStore.load(keystore, keystorePassword);
@@ -0,0 +1,455 @@
+package fr.diskmth.socketimpl.common;
+
+import javax.net.ssl.SSLEngine;
+import javax.net.ssl.SSLEngineResult;
+import javax.net.ssl.SSLException;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ByteChannel;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.GatheringByteChannel;
+import java.nio.channels.SocketChannel;
+import java.util.concurrent.Executor;
+
+public class SSLEngineChannel implements ByteChannel, GatheringByteChannel
+{
+    public static final int NET_OUT_RECORDS = 4;
+
+    private static final ByteBuffer[] EMPTY = {ByteBuffer.allocate(0)};
+
+    private final SocketChannel channel;
+    private final SSLEngine engine;
+    private final PacketBufferPool bufferPool;
+    private final Executor taskExecutor;
+    private final Runnable onTaskCompleted;
+
+    private PacketBuffer.Writer netIn;
+    private PacketBuffer.Writer netOut;
+    private PacketBuffer.Writer appIn;
+    private final long handshakeStart = System.nanoTime();
+    private long handshakeTime = -1;
+    private boolean isInputClosed = false;
+    private boolean isTruncated = false;
+    private volatile boolean isTaskRunning = false;
+
+    public SSLEngineChannel(SocketChannel channel, SSLEngine engine, PacketBufferPool bufferPool, Executor taskExecutor, Runnable onTaskCompleted) throws SSLException
+    {
+        this.channel = channel;
+        this.engine = engine;
+        this.bufferPool = bufferPool;
+        this.taskExecutor = taskExecutor;
+        this.onTaskCompleted = onTaskCompleted;
+        this.engine.beginHandshake();
+    }
+
+    @Override
+    public int read(ByteBuffer destination) throws IOException
+    {
+        if (!handshake())
+        {
+            return 0;
+        }
+
+        int read = drainAppIn(destination);
+        while (destination.hasRemaining() && !isInputClosed)
+        {
+            final SSLEngineResult result = unwrap();
+
+            if (result == null || result.getStatus() == SSLEngineResult.Status.BUFFER_UNDERFLOW)
+            {
+                final int filled = fillNetIn();
+                if (filled < 0)
+                {
+                    closeInbound();
+                }
+                if (filled <= 0)
+                {
+                    break;
+                }
+                continue;
+            }
+
+            if (result.getStatus() == SSLEngineResult.Status.CLOSED)
+            {
+                isInputClosed = true;
+            }
+
+            final int drained = drainAppIn(destination);
+            read += drained;
+
+            if (result.getStatus() == SSLEngineResult.Status.BUFFER_OVERFLOW && drained == 0)
+            {
+                break;
+            }
+
+            if (isHandshaking(result.getHandshakeStatus()) && !handshake())
+            {
+                break;
+            }
+        }
+
+        if (read == 0 && isInputClosed && (appIn == null || appIn.byteBuffer.position() == 0))
+        {
+            if (isTruncated)
+            {
+                throw new SSLException("The connection was closed in the middle of a TLS record");
+            }
+
+            releaseIdleBuffers();
+            return -1;
+        }
+
+        releaseIdleBuffers();
+        return read;
+    }
+
+    @Override
+    public int write(ByteBuffer source) throws IOException
+    {
+        return (int) write(new ByteBuffer[]{source}, 0, 1);
+    }
+
+    @Override
+    public long write(ByteBuffer[] sources) throws IOException
+    {
+        return write(sources, 0, sources.length);
+    }
+
+    @Override
+    public long write(ByteBuffer[] sources, int offset, int length) throws IOException
+    {
+        if (!handshake() || !flushNetOut())
+        {
+            return 0;
+        }
+
+        long written = 0;
+        while (hasRemaining(sources, offset, length))
+        {
+            final SSLEngineResult result = wrap(sources, offset, length);
+            written += result.bytesConsumed();
+
+            if (result.getStatus() == SSLEngineResult.Status.CLOSED)
+            {
+                throw new ClosedChannelException();
+            }
+
+            if (result.getStatus() == SSLEngineResult.Status.BUFFER_OVERFLOW && !flushNetOut())
+            {
+                break;
+            }
+
+            if (isHandshaking(result.getHandshakeStatus()) && !handshake())
+            {
+                break;
+            }
+        }
+
+        flushNetOut();
+        return written;
+    }
+
+    public boolean flush() throws IOException
+    {
+        return handshake() && flushNetOut();
+    }
+
+    private boolean handshake() throws IOException
+    {
+        while (!isTaskRunning)
+        {
+            final SSLEngineResult.HandshakeStatus status = engine.getHandshakeStatus();
+
+            if (status == SSLEngineResult.HandshakeStatus.NEED_TASK)
+            {
+                runDelegatedTasks();
+            }
+            else if (status == SSLEngineResult.HandshakeStatus.NEED_WRAP)
+            {
+                final SSLEngineResult result = wrap(EMPTY, 0, 1);
+                if (result.getStatus() == SSLEngineResult.Status.BUFFER_OVERFLOW && !flushNetOut())
+                {
+                    return false;
+                }
+                else if (result.getStatus() == SSLEngineResult.Status.CLOSED)
+                {
+                    flushNetOut();
+                    throw new ClosedChannelException();
+                }
+            }
+            else if (status == SSLEngineResult.HandshakeStatus.NEED_UNWRAP || status == SSLEngineResult.HandshakeStatus.NEED_UNWRAP_AGAIN)
+            {
+                if (!flushNetOut())
+                {
+                    return false;
+                }
+
+                final SSLEngineResult result = unwrap();
+                if (result == null || result.getStatus() == SSLEngineResult.Status.BUFFER_UNDERFLOW)
+                {
+                    final int filled = fillNetIn();
+                    if (filled < 0)
+                    {
+                        throw new EOFException("Connection closed during the TLS handshake");
+                    }
+                    else if (filled == 0)
+                    {
+                        return false;
+                    }
+                }
+                else if (result.getStatus() == SSLEngineResult.Status.BUFFER_OVERFLOW)
+                {
+                    appIn.ensureCapacity(engine.getSession().getApplicationBufferSize());
+                }
+                else if (result.getStatus() == SSLEngineResult.Status.CLOSED)
+                {
+                    isInputClosed = true;
+                    return true;
+                }
+            }
+            else
+            {
+                if (handshakeTime < 0)
+                {
+                    handshakeTime = System.nanoTime() - handshakeStart;
+                }
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    private void runDelegatedTasks()
+    {
+        isTaskRunning = true;
+        taskExecutor.execute(() ->
+        {
+            try
+            {
+                Runnable task;
+                while ((task = engine.getDelegatedTask()) != null)
+                {
+                    task.run();
+                }
+            }
+            finally
+            {
+                isTaskRunning = false;
+                onTaskCompleted.run();
+            }
+        });
+    }
+
+    private SSLEngineResult wrap(ByteBuffer[] sources, int offset, int length) throws IOException
+    {
+        final int packetBufferSize = engine.getSession().getPacketBufferSize();
+        if (netOut == null)
+        {
+            netOut = bufferPool.acquireWriter(packetBufferSize * NET_OUT_RECORDS);
+        }
+        else if (netOut.byteBuffer.position() == 0)
+        {
+            netOut.ensureCapacity(packetBufferSize);
+        }
+
+        return engine.wrap(sources, offset, length, netOut.byteBuffer);
+    }
+
+    private SSLEngineResult unwrap() throws IOException
+    {
+        if (netIn == null || netIn.byteBuffer.position() == 0)
+        {
+            return null;
+        }
+
+        final int applicationBufferSize = engine.getSession().getApplicationBufferSize();
+        if (appIn == null)
+        {
+            appIn = bufferPool.acquireWriter(applicationBufferSize);
+        }
+        else if (appIn.byteBuffer.position() == 0)
+        {
+            appIn.ensureCapacity(applicationBufferSize);
+        }
+
+        final ByteBuffer source = netIn.byteBuffer.flip();
+        try
+        {
+            return engine.unwrap(source, appIn.byteBuffer);
+        }
+        finally
+        {
+            source.compact();
+        }
+    }
+
+    private int fillNetIn() throws IOException
+    {
+        if (netIn == null)
+        {
+            netIn = bufferPool.acquireWriter(engine.getSession().getPacketBufferSize());
+        }
+        else
+        {
+            netIn.ensureCapacity(engine.getSession().getPacketBufferSize() - netIn.byteBuffer.position());
+        }
+
+        return channel.read(netIn.byteBuffer);
+    }
+
+    private boolean flushNetOut() throws IOException
+    {
+        if (netOut == null)
+        {
+            return true;
+        }
+
+        final ByteBuffer buffer = netOut.byteBuffer.flip();
+        try
+        {
+            int written = 1;
+            while (buffer.hasRemaining() && written > 0)
+            {
+                written = channel.write(buffer);
+            }
+        }
+        finally
+        {
+            buffer.compact();
+        }
+
+        if (buffer.position() > 0)
+        {
+            return false;
+        }
+
+        bufferPool.release(netOut);
+        netOut = null;
+        return true;
+    }
+
+    private int drainAppIn(ByteBuffer destination)
+    {
+        if (appIn == null || appIn.byteBuffer.position() == 0)
+        {
+            return 0;
+        }
+
+        final ByteBuffer buffer = appIn.byteBuffer.flip();
+        final int count = Math.min(buffer.remaining(), destination.remaining());
+        destination.put(buffer.slice(buffer.position(), count));
+        buffer.position(buffer.position() + count).compact();
+        return count;
+    }
+
+    private void closeInbound()
+    {
+        isInputClosed = true;
+        isTruncated = netIn != null && netIn.byteBuffer.position() > 0;
+        try
+        {
+            engine.closeInbound();
+        }
+        catch (SSLException ignored)
+        {
+            // The peer closed the connection without a close_notify alert
+        }
+    }
+
+    private void releaseIdleBuffers()
+    {
+        if (netIn != null && netIn.byteBuffer.position() == 0)
+        {
+            bufferPool.release(netIn);
+            netIn = null;
+        }
+
+        if (appIn != null && appIn.byteBuffer.position() == 0)
+        {
+            bufferPool.release(appIn);
+            appIn = null;
+        }
+    }
+
+    private static boolean hasRemaining(ByteBuffer[] buffers, int offset, int length)
+    {
+        for (int i = offset; i < offset + length; i++)
+        {
+            if (buffers[i].hasRemaining())
+            {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean isHandshaking(SSLEngineResult.HandshakeStatus status)
+    {
+        return status != SSLEngineResult.HandshakeStatus.NOT_HANDSHAKING && status != SSLEngineResult.HandshakeStatus.FINISHED;
+    }
+
+    public boolean hasBufferedInput()
+    {
+        return (appIn != null && appIn.byteBuffer.position() > 0) || (netIn != null && netIn.byteBuffer.position() > 0);
+    }
+
+    public boolean hasPendingOutput()
+    {
+        return netOut != null && netOut.byteBuffer.position() > 0;
+    }
+
+    public long getHandshakeTime()
+    {
+        return handshakeTime;
+    }
+
+    public boolean isHandshaking()
+    {
+        return isHandshaking(engine.getHandshakeStatus());
+    }
+
+    public SSLEngine getEngine()
+    {
+        return engine;
+    }
+
+    @Override
+    public boolean isOpen()
+    {
+        return channel.isOpen();
+    }
+
+    @Override
+    public void close() throws IOException
+    {
+        try
+        {
+            if (channel.isOpen() && !isTaskRunning)
+            {
+                engine.closeOutbound();
+                wrap(EMPTY, 0, 1);
+                flushNetOut();
+            }
+        }
+        catch (IOException ignored)
+        {
+            // The close_notify alert is sent on a best-effort basis
+        }
+        finally
+        {
+            for (PacketBuffer.Writer writer : new PacketBuffer.Writer[]{netIn, netOut, appIn})
+            {
+                if (writer != null)
+                {
+                    bufferPool.release(writer);
+                }
+            }
+            netIn = null;
+            netOut = null;
+            appIn = null;
+            channel.close();
+        }
+    }
+}
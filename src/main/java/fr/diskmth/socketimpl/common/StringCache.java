@@ -0,0 +1,84 @@
+package fr.diskmth.socketimpl.common;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+public class StringCache
+{
+    public static final int DEFAULT_SIZE = 1024;
+    public static final int DEFAULT_MAX_LENGTH = 32;
+
+    private final Entry[] entries;
+    private final int mask;
+    private final int maxLength;
+
+    public StringCache(int size, int maxLength)
+    {
+        final int capacity = Integer.highestOneBit(Math.max(1, size - 1) << 1);
+        this.entries = new Entry[capacity];
+        this.mask = capacity - 1;
+        this.maxLength = maxLength;
+    }
+
+    public StringCache()
+    {
+        this(DEFAULT_SIZE, DEFAULT_MAX_LENGTH);
+    }
+
+    public int getMaxLength()
+    {
+        return maxLength;
+    }
+
+    public String get(ByteBuffer buffer, int offset, int length)
+    {
+        int hash = length;
+        for (int i = 0; i < length; i++)
+        {
+            hash = 31 * hash + buffer.get(offset + i);
+        }
+        hash ^= hash >>> 16;
+
+        final int index = hash & mask;
+        final Entry entry = entries[index];
+        if (entry != null && entry.matches(buffer, offset, length))
+        {
+            return entry.value;
+        }
+
+        final byte[] bytes = new byte[length];
+        buffer.get(offset, bytes);
+        final String value = new String(bytes, StandardCharsets.UTF_8);
+        entries[index] = new Entry(bytes, value);
+        return value;
+    }
+
+    private static final class Entry
+    {
+        private final byte[] bytes;
+        private final String value;
+
+        private Entry(byte[] bytes, String value)
+        {
+            this.bytes = bytes;
+            this.value = value;
+        }
+
+        private boolean matches(ByteBuffer buffer, int offset, int length)
+        {
+            if (bytes.length != length)
+            {
+                return false;
+            }
+
+            for (int i = 0; i < length; i++)
+            {
+                if (bytes[i] != buffer.get(offset + i))
+                {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+}
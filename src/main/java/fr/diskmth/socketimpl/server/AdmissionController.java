@@ -0,0 +1,217 @@
+package fr.diskmth.socketimpl.server;
+
+import java.net.InetAddress;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class AdmissionController
+{
+    public static final int DEFAULT_MAX_TRACKED_IPS = 65536;
+
+    public static final String PER_IP_CONNECTIONS = "per_ip_connections";
+    public static final String PER_IP_RATE = "per_ip_rate";
+    public static final String GLOBAL_RATE = "global_rate";
+    public static final String TRACKING_FULL = "tracking_full";
+
+    private final int maxConnectionsPerIp;
+    private final double perIpRate;
+    private final int perIpBurst;
+    private final TokenBucket globalBucket;
+    private final int maxTrackedIps;
+    private final int evictionTarget;
+    private final Map<InetAddress, IpState> states = new ConcurrentHashMap<>();
+    private final AtomicInteger idleIps = new AtomicInteger();
+
+    protected AdmissionController(int maxConnectionsPerIp, double perIpRate, int perIpBurst, double globalRate, int globalBurst, int maxTrackedIps)
+    {
+        this.maxConnectionsPerIp = maxConnectionsPerIp;
+        this.perIpRate = perIpRate;
+        this.perIpBurst = perIpBurst;
+        this.globalBucket = globalRate > 0 ? new TokenBucket(globalRate, globalBurst, System.nanoTime()) : null;
+        this.maxTrackedIps = maxTrackedIps;
+        this.evictionTarget = maxTrackedIps - Math.max(1, maxTrackedIps / 4);
+    }
+
+    public synchronized String tryAdmit(InetAddress address)
+    {
+        final long now = System.nanoTime();
+        if (maxConnectionsPerIp <= 0 && perIpRate <= 0)
+        {
+            return globalBucket != null && !globalBucket.tryTake(now) ? GLOBAL_RATE : null;
+        }
+
+        IpState state = states.get(address);
+        if (state == null)
+        {
+            if (states.size() >= maxTrackedIps && !evict(now))
+            {
+                return TRACKING_FULL;
+            }
+
+            state = new IpState(perIpRate > 0 ? new TokenBucket(perIpRate, perIpBurst, now) : null);
+            states.put(address, state);
+            idleIps.incrementAndGet();
+        }
+
+        synchronized (state)
+        {
+            if (maxConnectionsPerIp > 0 && state.connections >= maxConnectionsPerIp)
+            {
+                return PER_IP_CONNECTIONS;
+            }
+            else if (state.bucket != null && !state.bucket.tryTake(now))
+            {
+                return PER_IP_RATE;
+            }
+            else if (globalBucket != null && !globalBucket.tryTake(now))
+            {
+                if (state.bucket != null)
+                {
+                    state.bucket.refund();
+                }
+                return GLOBAL_RATE;
+            }
+
+            if (state.connections++ == 0)
+            {
+                idleIps.decrementAndGet();
+            }
+        }
+        return null;
+    }
+
+    public void release(InetAddress address)
+    {
+        final IpState state = states.get(address);
+        if (state != null)
+        {
+            synchronized (state)
+            {
+                if (state.connections > 0 && --state.connections == 0)
+                {
+                    idleIps.incrementAndGet();
+                }
+            }
+        }
+    }
+
+    private boolean evict(long now)
+    {
+        if (idleIps.get() == 0)
+        {
+            return false;
+        }
+
+        evictIdle(now, true);
+        if (states.size() > evictionTarget)
+        {
+            evictIdle(now, false);
+        }
+
+        return states.size() < maxTrackedIps;
+    }
+
+    private void evictIdle(long now, boolean onlyRefilled)
+    {
+        for (Iterator<IpState> iterator = states.values().iterator(); iterator.hasNext() && states.size() > evictionTarget; )
+        {
+            final IpState state = iterator.next();
+            synchronized (state)
+            {
+                if (state.connections == 0 && (!onlyRefilled || state.bucket == null || state.bucket.isFull(now)))
+                {
+                    iterator.remove();
+                    idleIps.decrementAndGet();
+                }
+            }
+        }
+    }
+
+    public int getConnections(InetAddress address)
+    {
+        final IpState state = states.get(address);
+        if (state == null)
+        {
+            return 0;
+        }
+
+        synchronized (state)
+        {
+            return state.connections;
+        }
+    }
+
+    public int trackedIps()
+    {
+        return states.size();
+    }
+
+    public int getMaxConnectionsPerIp()
+    {
+        return maxConnectionsPerIp;
+    }
+
+    public int getMaxTrackedIps()
+    {
+        return maxTrackedIps;
+    }
+
+    private static final class IpState
+    {
+        private final TokenBucket bucket;
+        private int connections = 0;
+
+        private IpState(TokenBucket bucket)
+        {
+            this.bucket = bucket;
+        }
+    }
+
+    private static final class TokenBucket
+    {
+        private final double tokensPerNano;
+        private final int burst;
+        private double tokens;
+        private long refilledAt;
+
+        private TokenBucket(double tokensPerSecond, int burst, long now)
+        {
+            this.tokensPerNano = tokensPerSecond / TimeUnit.SECONDS.toNanos(1);
+            this.burst = burst;
+            this.tokens = burst;
+            this.refilledAt = now;
+        }
+
+        private void refill(long now)
+        {
+            tokens = Math.min(burst, tokens + (now - refilledAt) * tokensPerNano);
+            refilledAt = now;
+        }
+
+        private boolean tryTake(long now)
+        {
+            refill(now);
+            if (tokens < 1)
+            {
+                return false;
+            }
+
+            tokens--;
+            return true;
+        }
+
+        private void refund()
+        {
+            tokens = Math.min(burst, tokens + 1);
+        }
+
+        private boolean isFull(long now)
+        {
+            refill(now);
+            return tokens >= burst;
+        }
+    }
+}
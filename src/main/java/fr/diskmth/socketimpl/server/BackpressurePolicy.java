@@ -0,0 +1,6 @@
+package fr.diskmth.socketimpl.server;
+
+public enum BackpressurePolicy
+{
+    SIGNAL, BLOCK, DROP, DISCONNECT
+}
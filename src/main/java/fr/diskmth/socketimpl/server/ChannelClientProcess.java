@@ -0,0 +1,281 @@
+package fr.diskmth.socketimpl.server;
+
+import fr.diskmth.socketimpl.common.FrameDecoder;
+import fr.diskmth.socketimpl.common.SSLEngineChannel;
+
+import javax.net.ssl.SSLEngine;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.GatheringByteChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+public final class ChannelClientProcess extends ClientProcess
+{
+    public static final int MAX_GATHERED_FRAMES = 64;
+
+    private final SocketChannel clientChannel;
+    private final ServerEventLoop eventLoop;
+    private final SSLEngineChannel sslChannel;
+    private final ReadableByteChannel inputChannel;
+    private final GatheringByteChannel outputChannel;
+
+    private SelectionKey key;
+    private final FrameDecoder frameDecoder;
+
+    private final ArrayDeque<OutboundFrame> flushingFrames = new ArrayDeque<>();
+    private final ByteBuffer[] gatheredBuffers = new ByteBuffer[MAX_GATHERED_FRAMES];
+    private final AtomicBoolean isFlushScheduled = new AtomicBoolean(false);
+    private boolean isInputShutdown = false;
+    private boolean isHandshakeRecorded = false;
+
+    protected ChannelClientProcess(SocketChannel clientChannel, ServerEventLoop eventLoop, Server server)
+    {
+        super(server, clientChannel.socket().getInetAddress());
+        this.clientChannel = clientChannel;
+        this.eventLoop = eventLoop;
+        this.sslChannel = null;
+        this.inputChannel = clientChannel;
+        this.outputChannel = clientChannel;
+        this.frameDecoder = createFrameDecoder();
+    }
+
+    protected ChannelClientProcess(SocketChannel clientChannel, SSLEngine sslEngine, ServerEventLoop eventLoop, Server server) throws IOException
+    {
+        super(server, clientChannel.socket().getInetAddress());
+        this.clientChannel = clientChannel;
+        this.eventLoop = eventLoop;
+        this.sslChannel = new SSLEngineChannel(clientChannel, sslEngine, bufferPool, server.getThreadPool(), this::resume);
+        this.inputChannel = sslChannel;
+        this.outputChannel = sslChannel;
+        this.frameDecoder = createFrameDecoder();
+    }
+
+    protected void register(Selector selector) throws IOException
+    {
+        clientChannel.configureBlocking(false);
+        key = clientChannel.register(selector, SelectionKey.OP_READ, this);
+    }
+
+    protected void handle(SelectionKey key)
+    {
+        try
+        {
+            if (key.isReadable() || (sslChannel != null && sslChannel.hasBufferedInput()))
+            {
+                read();
+            }
+
+            if (key.isValid() && key.isWritable())
+            {
+                write();
+            }
+        }
+        catch (IOException | RuntimeException exception)
+        {
+            asyncLogger.warn(() -> clientId + ": Error while processing client channel", exception, genericsLogs, serverCallsLogs);
+            close();
+        }
+    }
+
+    private void resume()
+    {
+        eventLoop.execute(() ->
+        {
+            if (key != null && key.isValid())
+            {
+                try
+                {
+                    read();
+                }
+                catch (IOException | RuntimeException exception)
+                {
+                    asyncLogger.warn(() -> clientId + ": Error while processing client channel", exception, genericsLogs, serverCallsLogs);
+                    close();
+                }
+            }
+        });
+    }
+
+    private void read() throws IOException
+    {
+        int read;
+        while ((read = frameDecoder.readFrom(inputChannel)) > 0)
+        {
+            frameDecoder.decode(this::receivePacket);
+        }
+
+        if (sslChannel != null && !isHandshakeRecorded && sslChannel.getHandshakeTime() >= 0)
+        {
+            isHandshakeRecorded = true;
+            metrics.getHandshakeTime().record(sslChannel.getHandshakeTime());
+        }
+
+        if (read < 0)
+        {
+            isInputShutdown = true;
+            key.interestOps(key.interestOps() & ~SelectionKey.OP_READ);
+        }
+
+        write();
+    }
+
+    private void write() throws IOException
+    {
+        if (sslChannel != null && !sslChannel.flush())
+        {
+            setWriteInterest(sslChannel.hasPendingOutput());
+            return;
+        }
+
+        OutboundFrame frame;
+        while ((frame = pollFrame()) != null)
+        {
+            flushingFrames.add(frame);
+        }
+
+        while (!flushingFrames.isEmpty())
+        {
+            if (flushingFrames.peek() instanceof FileTransferFrame transfer)
+            {
+                if (!transfer.writeTo(outputChannel, sslChannel == null))
+                {
+                    break;
+                }
+                releaseFrame(flushingFrames.poll());
+                continue;
+            }
+
+            int count = 0;
+            long bytes = 0;
+            for (OutboundFrame flushingFrame : flushingFrames)
+            {
+                if (count == MAX_GATHERED_FRAMES || (count > 0 && bytes >= FLUSH_WATERMARK) || flushingFrame instanceof FileTransferFrame)
+                {
+                    break;
+                }
+                gatheredBuffers[count++] = flushingFrame.getBuffer();
+                bytes += flushingFrame.getBuffer().remaining();
+            }
+
+            final long written = outputChannel.write(gatheredBuffers, 0, count);
+            Arrays.fill(gatheredBuffers, 0, count, null);
+
+            while (!flushingFrames.isEmpty() && flushingFrames.peek().isDone())
+            {
+                releaseFrame(flushingFrames.poll());
+            }
+
+            if (written < bytes)
+            {
+                break;
+            }
+        }
+
+        if (sslChannel != null && (sslChannel.hasPendingOutput() || (!flushingFrames.isEmpty() && sslChannel.isHandshaking())))
+        {
+            setWriteInterest(sslChannel.hasPendingOutput());
+            return;
+        }
+        else if (!flushingFrames.isEmpty())
+        {
+            setWriteInterest(true);
+            return;
+        }
+
+        setWriteInterest(false);
+
+        if (isInputShutdown)
+        {
+            close();
+        }
+    }
+
+    private void setWriteInterest(boolean writeInterest)
+    {
+        if (writeInterest)
+        {
+            key.interestOps(key.interestOps() | SelectionKey.OP_WRITE);
+        }
+        else
+        {
+            key.interestOps(key.interestOps() & ~SelectionKey.OP_WRITE);
+        }
+    }
+
+    @Override
+    public void flush()
+    {
+        if (!isFlushScheduled.compareAndSet(false, true))
+        {
+            return;
+        }
+
+        eventLoop.execute(() ->
+        {
+            isFlushScheduled.set(false);
+
+            if (key != null && key.isValid())
+            {
+                try
+                {
+                    write();
+                }
+                catch (IOException | RuntimeException exception)
+                {
+                    asyncLogger.warn(() -> clientId + ": Error while writing to client channel", exception, genericsLogs, serverCallsLogs);
+                    close();
+                }
+            }
+        });
+    }
+
+    @Override
+    protected void closeConnection()
+    {
+        eventLoop.execute(() ->
+        {
+            while (!flushingFrames.isEmpty())
+            {
+                releaseFrame(flushingFrames.poll());
+            }
+
+            if (key != null)
+            {
+                key.cancel();
+            }
+
+            if (sslChannel != null)
+            {
+                try
+                {
+                    sslChannel.close();
+                }
+                catch (IOException exception)
+                {
+                    asyncLogger.warn(() -> clientId + ": Unable to close client TLS channel", exception, genericsLogs, serverCallsLogs);
+                }
+            }
+        });
+
+        if (sslChannel != null)
+        {
+            return;
+        }
+
+        try
+        {
+            clientChannel.close();
+        }
+        catch (IOException exception)
+        {
+            asyncLogger.warn(() -> clientId + ": Unable to close client channel", exception, genericsLogs, serverCallsLogs);
+        }
+    }
+}
@@ -2,82 +2,380 @@ package fr.diskmth.socketimpl.server;
 
 import fr.diskmth.loggy.Logger;
 import fr.diskmth.loggy.LogsFile;
+import fr.diskmth.socketimpl.FutureComplete;
+import fr.diskmth.socketimpl.IComplete;
+import fr.diskmth.socketimpl.common.AsyncLogger;
+import fr.diskmth.socketimpl.common.FrameDecoder;
+import fr.diskmth.socketimpl.common.FrameEncoder;
 import fr.diskmth.socketimpl.common.Packet;
 import fr.diskmth.socketimpl.common.PacketBuffer;
+import fr.diskmth.socketimpl.common.PacketBufferPool;
 import fr.diskmth.socketimpl.common.PacketContext;
 import fr.diskmth.socketimpl.common.PacketRegistry;
 
 import java.io.IOException;
-import java.io.InputStream;
-import java.io.OutputStream;
-import java.lang.reflect.InvocationTargetException;
-import java.net.Socket;
-import java.util.Collections;
-import java.util.PriorityQueue;
-import java.util.Queue;
+import java.io.UncheckedIOException;
+import java.net.InetAddress;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
 import java.util.UUID;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
 
-public class ClientProcess implements Runnable
+public abstract class ClientProcess
 {
+    public static final int FLUSH_WATERMARK = 64 * 1024;
+    public static final long BLOCK_POLL_MILLIS = 10;
+
     public final UUID clientId = UUID.randomUUID();
 
-    private final Socket clientSocket;
-    private final Logger logger;
-    private final LogsFile genericsLogs;
-    private final LogsFile serverCallsLogs;
+    protected final Server server;
+    protected final Logger logger;
+    protected final AsyncLogger asyncLogger;
+    protected final LogsFile genericsLogs;
+    protected final LogsFile serverCallsLogs;
+    protected final PacketBufferPool bufferPool;
+    protected final PacketContext.Server context;
+    protected final ServerMetrics metrics;
+    protected final InetAddress remoteAddress;
+
+    protected final OutboundQueue packetsToSend = new OutboundQueue();
+
+    private final AtomicBoolean isClosed = new AtomicBoolean(false);
+    private final AtomicLong queuedBytes = new AtomicLong();
+    private final AtomicBoolean isWritable = new AtomicBoolean(true);
+    private final ReentrantLock writabilityLock = new ReentrantLock();
+    private final Condition writableCondition = writabilityLock.newCondition();
 
-    private final Queue<Packet.S2C> packetsToSend = new PriorityQueue<>();
+    protected ClientProcess(Server server, InetAddress remoteAddress)
+    {
+        this.server = server;
+        this.logger = server.getLogger();
+        this.asyncLogger = server.getAsyncLogger();
+        this.genericsLogs = server.getGenericsLogs();
+        this.serverCallsLogs = server.getServerCallsLogs();
+        this.bufferPool = server.getBufferPool();
+        this.context = new PacketContext.Server(logger, genericsLogs, serverCallsLogs);
+        this.metrics = server.getMetrics();
+        this.remoteAddress = remoteAddress;
+    }
 
-    protected ClientProcess(Socket clientSocket, Logger logger, LogsFile genericsLogs, LogsFile serverCallsLogs)
+    protected FrameDecoder createFrameDecoder()
     {
-        this.clientSocket = clientSocket;
-        this.logger = logger;
-        this.genericsLogs = genericsLogs;
-        this.serverCallsLogs = serverCallsLogs;
+        return new FrameDecoder(server.getMaxFrameSize(), server.getStringCache());
     }
 
-    @Override
-    public void run()
+    protected void receivePacket(int packetId, long requestId, PacketBuffer.Reader reader) throws IOException
     {
+        final long start = System.nanoTime();
+        final int size = FrameDecoder.HEADER_SIZE + (requestId != FrameDecoder.NO_REQUEST ? FrameDecoder.REQUEST_ID_SIZE : 0) + reader.remaining();
+
+        final Packet.S2C packet;
         try
         {
-            final InputStream fromClient = clientSocket.getInputStream();
-            final OutputStream toClient = clientSocket.getOutputStream();
+            packet = PacketRegistry.create(Packet.S2C.class, packetId);
+        }
+        catch (IllegalArgumentException | IllegalStateException exception)
+        {
+            throw new IOException("Unable to instantiate packet with id " + packetId, exception);
+        }
 
-            while (!clientSocket.isClosed())
+        try
+        {
+            if (requestId != FrameDecoder.NO_REQUEST)
+            {
+                packet.receive(reader, new PacketContext.Server(logger, genericsLogs, serverCallsLogs, this::reply, requestId));
+            }
+            else
             {
-                final PacketBuffer.Reader reader = new PacketBuffer.Reader(fromClient.readAllBytes());
-
-                if(reader.available())
-                {
-                    PacketRegistry.get(Packet.S2C.class, reader.readInt()).getConstructor((Class<?>) null).newInstance().receive(reader, new PacketContext.Server(logger, genericsLogs, serverCallsLogs));
-                }
-
-                if(!packetsToSend.isEmpty())
-                {
-                    final Packet.S2C packetToSend = packetsToSend.remove();
-                    final PacketBuffer.Writer writer = new PacketBuffer.Writer(packetToSend.toString().getBytes().length);
-
-                    writer.writeInt(PacketRegistry.indexOf(packetToSend.getClass()));
-                    packetToSend.send(writer, new PacketContext.Server(logger, genericsLogs, serverCallsLogs));
-                    toClient.write(writer.getBytes());
-                }
+                packet.receive(reader, context);
             }
         }
-        catch (IOException | InvocationTargetException | InstantiationException | IllegalAccessException |
-               NoSuchMethodException exception)
+        catch (UncheckedIOException exception)
+        {
+            throw exception.getCause();
+        }
+
+        metrics.packetReceived(packetId, size);
+        metrics.getDecodeTime().recordSince(start);
+    }
+
+    protected static int packetIdOf(Class<? extends Packet> packetType)
+    {
+        final int packetId = PacketRegistry.indexOf(packetType);
+        if (packetId < 0)
         {
-            //todo
+            throw new IllegalArgumentException(packetType.getName() + " is not registered");
         }
+        return packetId;
     }
 
-    public void sendPacket(Packet.S2C packet)
+    protected OutboundFrame encodeFrame(Packet.S2C packetToSend, long requestId)
     {
-        packetsToSend.add(packet);
+        final int packetId = packetIdOf(packetToSend.getClass());
+        return new OutboundFrame(encodePacket(packetToSend, packetId, requestId, bufferPool, context, metrics), bufferPool, packetId, packetToSend.priority());
+    }
+
+    protected static PacketBuffer.Writer encodePacket(Packet.S2C packetToSend, int packetId, long requestId, PacketBufferPool bufferPool, PacketContext.Server context, ServerMetrics metrics)
+    {
+        final long startTime = System.nanoTime();
+        final PacketBuffer.Writer writer = bufferPool.acquireWriter(FrameDecoder.HEADER_SIZE + FrameDecoder.REQUEST_ID_SIZE + packetToSend.estimateSize());
+
+        final int start = FrameEncoder.begin(writer, packetId, requestId);
+        packetToSend.send(writer, context);
+        FrameEncoder.end(writer, start);
+
+        metrics.getEncodeTime().recordSince(startTime);
+        return writer;
+    }
+
+    protected boolean enqueue(OutboundFrame frame)
+    {
+        final int size = frame.getSize();
+        if (isClosed() || !admit(size))
+        {
+            frame.release();
+            return false;
+        }
+
+        if (size > 0)
+        {
+            metrics.packetSent(frame.getPacketId(), size);
+            server.addQueuedBytes(size);
+            if (queuedBytes.addAndGet(size) > server.getHighWatermark() && isWritable.compareAndSet(true, false))
+            {
+                fireWritabilityChanged(false);
+            }
+        }
+
+        packetsToSend.add(frame);
+
+        if (isClosed())
+        {
+            releasePendingFrames();
+        }
+        return true;
+    }
+
+    private boolean admit(int size)
+    {
+        if (size == 0 || (queuedBytes.get() + size <= server.getHighWatermark() && server.hasQueueCapacity(size)))
+        {
+            return true;
+        }
+
+        final BackpressurePolicy policy = server.getBackpressurePolicy();
+        if (policy == BackpressurePolicy.DROP)
+        {
+            return false;
+        }
+        else if (policy == BackpressurePolicy.DISCONNECT)
+        {
+            final long queued = queuedBytes.get();
+            asyncLogger.warn(() -> clientId + ": Slow client disconnected with " + queued + " bytes queued", genericsLogs, serverCallsLogs);
+            close();
+            return false;
+        }
+        else if (policy == BackpressurePolicy.BLOCK)
+        {
+            return canBlock() && awaitWritable(size);
+        }
+        return true;
+    }
+
+    private boolean awaitWritable(int size)
+    {
+        flush();
+
+        writabilityLock.lock();
+        try
+        {
+            while (!isClosed() && (queuedBytes.get() > server.getLowWatermark() || !server.hasQueueCapacity(size)))
+            {
+                writableCondition.await(BLOCK_POLL_MILLIS, TimeUnit.MILLISECONDS);
+            }
+        }
+        catch (InterruptedException exception)
+        {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+        finally
+        {
+            writabilityLock.unlock();
+        }
+
+        return !isClosed();
+    }
+
+    protected boolean canBlock()
+    {
+        return !(Thread.currentThread() instanceof ServerEventLoop);
+    }
+
+    protected void releaseFrame(OutboundFrame frame)
+    {
+        frame.release();
+
+        final int size = frame.getSize();
+        if (size == 0)
+        {
+            return;
+        }
+
+        server.addQueuedBytes(-size);
+        if (queuedBytes.addAndGet(-size) <= server.getLowWatermark())
+        {
+            if (isWritable.compareAndSet(false, true))
+            {
+                fireWritabilityChanged(true);
+            }
+
+            if (server.getBackpressurePolicy() == BackpressurePolicy.BLOCK)
+            {
+                signalWritable();
+            }
+        }
+    }
+
+    private void fireWritabilityChanged(boolean isWritable)
+    {
+        final WritabilityListener listener = server.getWritabilityListener();
+        if (listener != null)
+        {
+            listener.onWritabilityChanged(this, isWritable);
+        }
+    }
+
+    protected OutboundFrame pollFrame()
+    {
+        return packetsToSend.poll();
+    }
+
+    protected void releasePendingFrames()
+    {
+        OutboundFrame frame;
+        while ((frame = pollFrame()) != null)
+        {
+            releaseFrame(frame);
+        }
+    }
+
+    protected abstract void closeConnection();
+
+    public abstract void flush();
+
+    public void scheduleFlush()
+    {
+        flush();
+    }
+
+    public void close()
+    {
+        if (!isClosed.compareAndSet(false, true))
+        {
+            return;
+        }
+
+        closeConnection();
+        releasePendingFrames();
+        server.removeClient(this);
+        signalWritable();
+    }
+
+    private void signalWritable()
+    {
+        writabilityLock.lock();
+        try
+        {
+            writableCondition.signalAll();
+        }
+        finally
+        {
+            writabilityLock.unlock();
+        }
+    }
+
+    public InetAddress getRemoteAddress()
+    {
+        return remoteAddress;
+    }
+
+    public boolean isClosed()
+    {
+        return isClosed.get();
+    }
+
+    public boolean isWritable()
+    {
+        return isWritable.get() && server.hasQueueCapacity(0);
+    }
+
+    public long getQueuedBytes()
+    {
+        return queuedBytes.get();
+    }
+
+    public boolean sendPacket(Packet.S2C packet)
+    {
+        return enqueue(encodeFrame(packet, FrameDecoder.NO_REQUEST));
     }
 
     public void sendPackets(Packet.S2C... packets)
     {
-        Collections.addAll(packetsToSend, packets);
+        for (Packet.S2C packet : packets)
+        {
+            sendPacket(packet);
+        }
+    }
+
+    public boolean sendFrame(SharedFrame frame)
+    {
+        return enqueue(frame.retain());
+    }
+
+    public void reply(Packet.S2C packet, long requestId)
+    {
+        enqueue(encodeFrame(packet, requestId));
+        flush();
+    }
+
+    public void sendAndFlush(Packet.S2C packet)
+    {
+        sendPacket(packet);
+        flush();
+    }
+
+    public IComplete<Long> sendFile(Class<? extends Packet.S2C> packetType, Path path) throws IOException
+    {
+        final FileChannel file = FileChannel.open(path, StandardOpenOption.READ);
+        try
+        {
+            return sendFile(packetType, file, 0, file.size(), FileTransferFrame.DEFAULT_CHUNK_SIZE, true);
+        }
+        catch (IOException | RuntimeException exception)
+        {
+            file.close();
+            throw exception;
+        }
+    }
+
+    public IComplete<Long> sendFile(Class<? extends Packet.S2C> packetType, FileChannel file, long position, long count, int chunkSize) throws IOException
+    {
+        return sendFile(packetType, file, position, count, chunkSize, false);
+    }
+
+    private IComplete<Long> sendFile(Class<? extends Packet.S2C> packetType, FileChannel file, long position, long count, int chunkSize, boolean closeFile) throws IOException
+    {
+        final int packetId = packetIdOf(packetType);
+        final FileTransferFrame frame = new FileTransferFrame(file, closeFile, packetId, position, count, chunkSize, bufferPool, Packet.Priority.LOW);
+        frame.getCompletion().thenAccept(bytes -> metrics.packetSent(packetId, bytes));
+        enqueue(frame);
+        scheduleFlush();
+        return new FutureComplete<>(frame.getCompletion());
     }
 }
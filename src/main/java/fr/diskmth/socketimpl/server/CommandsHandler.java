@@ -1,12 +1,18 @@
 package fr.diskmth.socketimpl.server;
 
+import java.io.BufferedReader;
 import java.io.IOException;
+import java.io.InputStreamReader;
 import java.util.HashMap;
-import java.util.Scanner;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
 
 public class CommandsHandler extends Thread
 {
+    public static final long POLL_INTERVAL_MILLIS = 500;
+
     public static final HashMap<String, ICommand> DEFAULT_COMMANDS = new HashMap<>()
     {
         {
@@ -15,6 +21,7 @@ public class CommandsHandler extends Thread
             put("pause", (server) -> server.pause(true));
             put("resume", (server) -> server.pause(false));
             put("close", Server::close);
+            put("reload-ips", Server::reloadIpFilter);
             put("help", (server) ->
             {
                 server.getLogger().log("Available commands are:");
@@ -25,18 +32,28 @@ public class CommandsHandler extends Thread
 
     private final HashMap<String, ICommand> commands;
     private final boolean ignoreCase;
+    private final boolean daemon;
+    private final BlockingQueue<String> lines = new LinkedBlockingQueue<>();
 
     private Server server;
+    private volatile boolean isInputClosed = false;
 
     public CommandsHandler(HashMap<String, ICommand> commands, boolean ignoreCase)
+    {
+        this(commands, ignoreCase, false);
+    }
+
+    public CommandsHandler(HashMap<String, ICommand> commands, boolean ignoreCase, boolean daemon)
     {
         this.commands = commands;
         this.ignoreCase = ignoreCase;
+        this.daemon = daemon;
     }
 
     protected void init(Server server)
     {
         this.server = server;
+        setDaemon(daemon);
         start();
     }
 
@@ -50,17 +67,25 @@ public class CommandsHandler extends Thread
 
         server.getLogger().log("Commands have been enabled", server.getGenericsLogs());
 
+        final Thread inputReader = new Thread(this::readLines, "SocketImpl-CommandsReader");
+        inputReader.setDaemon(true);
+        inputReader.start();
+
         try
         {
-            while (server.isInit())
+            while (server.isInit() && !(isInputClosed && lines.isEmpty()))
             {
-                if (System.in.available() <= 0)
+                final String line = lines.poll(POLL_INTERVAL_MILLIS, TimeUnit.MILLISECONDS);
+                if (line == null)
                 {
-                    sleep(500);
                     continue;
                 }
 
-                final String input = new Scanner(System.in).next();
+                final String input = line.trim();
+                if (input.isEmpty())
+                {
+                    continue;
+                }
 
                 if (commands != null && !server.areCommandsPaused())
                 {
@@ -82,11 +107,33 @@ public class CommandsHandler extends Thread
                 }
             }
         }
-        catch (IOException | InterruptedException exception)
+        catch (InterruptedException ignored)
         {
-            server.getLogger().error("An error occurred while reading commands", exception, server.getGenericsLogs());
+            // The server is closing
         }
 
         server.getLogger().log("Commands have been disabled", server.getGenericsLogs());
     }
+
+    private void readLines()
+    {
+        try
+        {
+            final BufferedReader reader = new BufferedReader(new InputStreamReader(System.in));
+            String line;
+
+            while ((line = reader.readLine()) != null)
+            {
+                lines.add(line);
+            }
+        }
+        catch (IOException exception)
+        {
+            server.getLogger().error("An error occurred while reading commands", exception, server.getGenericsLogs());
+        }
+        finally
+        {
+            isInputClosed = true;
+        }
+    }
 }
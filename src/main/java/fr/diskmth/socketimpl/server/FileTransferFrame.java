@@ -0,0 +1,178 @@
+package fr.diskmth.socketimpl.server;
+
+import fr.diskmth.socketimpl.common.FrameDecoder;
+import fr.diskmth.socketimpl.common.FrameEncoder;
+import fr.diskmth.socketimpl.common.Packet;
+import fr.diskmth.socketimpl.common.PacketBuffer;
+import fr.diskmth.socketimpl.common.PacketBufferPool;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.util.concurrent.CompletableFuture;
+
+public class FileTransferFrame extends OutboundFrame
+{
+    public static final int CHUNK_HEADER_SIZE = 16;
+    public static final int DEFAULT_CHUNK_SIZE = 256 * 1024;
+
+    private static final ByteBuffer EMPTY = ByteBuffer.allocate(0);
+
+    private final FileChannel file;
+    private final boolean closeFile;
+    private final long position;
+    private final long count;
+    private final int chunkSize;
+    private final PacketBufferPool bufferPool;
+    private final CompletableFuture<Long> completion = new CompletableFuture<>();
+
+    private PacketBuffer.Writer writer;
+    private ByteBuffer buffer = EMPTY;
+    private long offset = 0;
+    private long regionPosition = 0;
+    private long regionRemaining = 0;
+    private boolean isStarted = false;
+    private boolean isDone = false;
+
+    protected FileTransferFrame(FileChannel file, boolean closeFile, int packetId, long position, long count, int chunkSize, PacketBufferPool bufferPool, Packet.Priority priority) throws IOException
+    {
+        super(packetId, priority);
+
+        if (position < 0 || count < 0 || position + count > file.size())
+        {
+            throw new IllegalArgumentException("Region [" + position + ", " + (position + count) + ") is outside of a file of " + file.size() + " bytes");
+        }
+        else if (chunkSize <= 0)
+        {
+            throw new IllegalArgumentException("Chunk size must be positive");
+        }
+
+        this.file = file;
+        this.closeFile = closeFile;
+        this.position = position;
+        this.count = count;
+        this.chunkSize = chunkSize;
+        this.bufferPool = bufferPool;
+    }
+
+    protected boolean writeTo(WritableByteChannel target, boolean zeroCopy) throws IOException
+    {
+        while (!isDone)
+        {
+            if (buffer.hasRemaining())
+            {
+                target.write(buffer);
+                if (buffer.hasRemaining())
+                {
+                    return false;
+                }
+            }
+
+            if (regionRemaining > 0)
+            {
+                final long transferred = file.transferTo(regionPosition, regionRemaining, target);
+                if (transferred == 0 && regionPosition >= file.size())
+                {
+                    throw new EOFException("File ended " + regionRemaining + " bytes before the expected length");
+                }
+
+                regionPosition += transferred;
+                regionRemaining -= transferred;
+                if (regionRemaining > 0)
+                {
+                    return false;
+                }
+            }
+
+            if (isStarted && offset == count)
+            {
+                isDone = true;
+                completion.complete(count);
+            }
+            else
+            {
+                nextChunk(zeroCopy);
+            }
+        }
+
+        return true;
+    }
+
+    private void nextChunk(boolean zeroCopy) throws IOException
+    {
+        final int length = (int) Math.min(chunkSize, count - offset);
+
+        if (writer == null)
+        {
+            writer = bufferPool.acquireWriter(FrameDecoder.HEADER_SIZE + CHUNK_HEADER_SIZE + (zeroCopy ? 0 : chunkSize));
+        }
+        else
+        {
+            writer.flush();
+        }
+
+        final int start = FrameEncoder.begin(writer, getPacketId());
+        writer.writeLong(offset);
+        writer.writeLong(count);
+
+        if (zeroCopy)
+        {
+            FrameEncoder.end(writer, start, length);
+            regionPosition = position + offset;
+            regionRemaining = length;
+        }
+        else
+        {
+            writer.writeBytes(file, position + offset, length);
+            FrameEncoder.end(writer, start);
+        }
+
+        buffer = writer.toByteBuffer();
+        offset += length;
+        isStarted = true;
+    }
+
+    public CompletableFuture<Long> getCompletion()
+    {
+        return completion;
+    }
+
+    @Override
+    public ByteBuffer getBuffer()
+    {
+        return buffer;
+    }
+
+    @Override
+    public boolean isDone()
+    {
+        return isDone;
+    }
+
+    @Override
+    public void release()
+    {
+        if (writer != null)
+        {
+            bufferPool.release(writer);
+            writer = null;
+        }
+
+        if (closeFile)
+        {
+            try
+            {
+                file.close();
+            }
+            catch (IOException exception)
+            {
+                completion.completeExceptionally(exception);
+            }
+        }
+
+        completion.completeExceptionally(new ClosedChannelException());
+    }
+}
@@ -0,0 +1,348 @@
+package fr.diskmth.socketimpl.server;
+
+import fr.diskmth.loggy.Logger;
+import fr.diskmth.loggy.LogsFile;
+
+import java.io.IOException;
+import java.net.Inet4Address;
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Pattern;
+
+public class IpFilter
+{
+    public static final long DEFAULT_RELOAD_INTERVAL_MILLIS = 5000;
+
+    private static final byte NONE = 0;
+    private static final byte ALLOW = 1;
+    private static final byte DENY = 2;
+    private static final Pattern IPV4 = Pattern.compile("\\d{1,3}(\\.\\d{1,3}){3}");
+
+    private final List<Rule> staticRules = new ArrayList<>();
+    private volatile Rules rules = new Rules(List.of());
+    private List<Rule> fileRules = List.of();
+    private Path file = null;
+    private long reloadIntervalMillis = 0;
+    private FileTime lastModified = null;
+    private Thread watcher;
+
+    /*---------------------------------------- Rules ----------------------------------------*/
+
+    public IpFilter allow(String... cidrs)
+    {
+        return addRules(ALLOW, cidrs);
+    }
+
+    public IpFilter deny(String... cidrs)
+    {
+        return addRules(DENY, cidrs);
+    }
+
+    private synchronized IpFilter addRules(byte action, String... cidrs)
+    {
+        for (String cidr : cidrs)
+        {
+            staticRules.add(Rule.parse(action, cidr));
+        }
+        rebuild();
+        return this;
+    }
+
+    public synchronized IpFilter file(Path file, long reloadIntervalMillis)
+    {
+        this.file = file;
+        this.reloadIntervalMillis = reloadIntervalMillis;
+        this.lastModified = null;
+        return this;
+    }
+
+    public synchronized void reload() throws IOException
+    {
+        if (file == null)
+        {
+            return;
+        }
+
+        final FileTime modified = Files.getLastModifiedTime(file);
+        final List<Rule> parsed = new ArrayList<>();
+        final List<String> lines = Files.readAllLines(file, StandardCharsets.UTF_8);
+        for (int i = 0; i < lines.size(); i++)
+        {
+            final String line = lines.get(i).strip();
+            if (line.isEmpty() || line.startsWith("#"))
+            {
+                continue;
+            }
+
+            final String[] parts = line.split("\\s+");
+            try
+            {
+                if (parts.length == 1)
+                {
+                    parsed.add(Rule.parse(DENY, parts[0]));
+                }
+                else if (parts.length == 2 && parts[0].equalsIgnoreCase("allow"))
+                {
+                    parsed.add(Rule.parse(ALLOW, parts[1]));
+                }
+                else if (parts.length == 2 && parts[0].equalsIgnoreCase("deny"))
+                {
+                    parsed.add(Rule.parse(DENY, parts[1]));
+                }
+                else
+                {
+                    throw new IllegalArgumentException("Expected '[allow|deny] <address>[/<prefix>]'");
+                }
+            }
+            catch (IllegalArgumentException exception)
+            {
+                throw new IOException(file + ":" + (i + 1) + ": " + exception.getMessage(), exception);
+            }
+        }
+
+        fileRules = parsed;
+        lastModified = modified;
+        rebuild();
+    }
+
+    public synchronized boolean reloadIfModified() throws IOException
+    {
+        if (file == null || Files.getLastModifiedTime(file).equals(lastModified))
+        {
+            return false;
+        }
+
+        reload();
+        return true;
+    }
+
+    private void rebuild()
+    {
+        final List<Rule> all = new ArrayList<>(staticRules);
+        all.addAll(fileRules);
+        rules = new Rules(all);
+    }
+
+    /*---------------------------------------- Watching ----------------------------------------*/
+
+    public synchronized void startWatching(Logger logger, LogsFile... logsFiles)
+    {
+        if (file == null || reloadIntervalMillis <= 0 || watcher != null)
+        {
+            return;
+        }
+
+        watcher = new Thread(() ->
+        {
+            while (!Thread.currentThread().isInterrupted())
+            {
+                try
+                {
+                    Thread.sleep(reloadIntervalMillis);
+                    if (reloadIfModified())
+                    {
+                        logger.log("The IP filter has been reloaded with " + ruleCount() + " rules from: " + file, logsFiles);
+                    }
+                }
+                catch (InterruptedException exception)
+                {
+                    return;
+                }
+                catch (IOException exception)
+                {
+                    logger.error("Unable to reload the IP filter, previous rules are kept", exception, logsFiles);
+                }
+            }
+        }, "SocketImpl-IpFilter");
+        watcher.setDaemon(true);
+        watcher.start();
+    }
+
+    public synchronized void stopWatching()
+    {
+        if (watcher != null)
+        {
+            watcher.interrupt();
+            watcher = null;
+        }
+    }
+
+    /*---------------------------------------- Lookup ----------------------------------------*/
+
+    public boolean isAllowed(InetAddress address)
+    {
+        return rules.isAllowed(address);
+    }
+
+    public int ruleCount()
+    {
+        return rules.size;
+    }
+
+    public Path getFile()
+    {
+        return file;
+    }
+
+    private static final class Rule
+    {
+        private final byte action;
+        private final byte[] address;
+        private final int prefixLength;
+
+        private Rule(byte action, byte[] address, int prefixLength)
+        {
+            this.action = action;
+            this.address = address;
+            this.prefixLength = prefixLength;
+        }
+
+        private static Rule parse(byte action, String cidr)
+        {
+            final int slash = cidr.indexOf('/');
+            final String host = slash < 0 ? cidr : cidr.substring(0, slash);
+            if (!IPV4.matcher(host).matches() && host.indexOf(':') < 0)
+            {
+                throw new IllegalArgumentException("Not an IP address literal: " + cidr);
+            }
+
+            final InetAddress address;
+            try
+            {
+                address = InetAddress.getByName(host);
+            }
+            catch (UnknownHostException exception)
+            {
+                throw new IllegalArgumentException("Not an IP address literal: " + cidr, exception);
+            }
+
+            final int maxLength = address.getAddress().length * 8;
+            int prefixLength = maxLength;
+            if (slash >= 0)
+            {
+                try
+                {
+                    prefixLength = Integer.parseInt(cidr.substring(slash + 1));
+                }
+                catch (NumberFormatException exception)
+                {
+                    throw new IllegalArgumentException("Invalid prefix length: " + cidr, exception);
+                }
+
+                if (address instanceof Inet4Address && host.indexOf(':') >= 0)
+                {
+                    prefixLength -= 96;
+                }
+            }
+
+            if (prefixLength < 0 || prefixLength > maxLength)
+            {
+                throw new IllegalArgumentException("Invalid prefix length: " + cidr);
+            }
+            return new Rule(action, address.getAddress(), prefixLength);
+        }
+    }
+
+    private static final class Rules
+    {
+        private final Node ipv4 = new Node();
+        private final Node ipv6 = new Node();
+        private final boolean allowByDefault;
+        private final int size;
+
+        private Rules(List<Rule> rules)
+        {
+            boolean hasAllowRule = false;
+            for (Rule rule : rules)
+            {
+                Node node = rule.address.length == 4 ? ipv4 : ipv6;
+                for (int bit = 0; bit < rule.prefixLength; bit++)
+                {
+                    node = node.child(bitOf(rule.address, bit), true);
+                }
+
+                if (node.action != DENY)
+                {
+                    node.action = rule.action;
+                }
+                hasAllowRule |= rule.action == ALLOW;
+            }
+
+            this.allowByDefault = !hasAllowRule;
+            this.size = rules.size();
+        }
+
+        private boolean isAllowed(InetAddress address)
+        {
+            final byte[] bytes = address.getAddress();
+            byte action;
+            if (bytes.length == 4)
+            {
+                final int bits = (bytes[0] & 0xFF) << 24 | (bytes[1] & 0xFF) << 16 | (bytes[2] & 0xFF) << 8 | bytes[3] & 0xFF;
+                Node node = ipv4;
+                action = node.action;
+                for (int bit = 0; bit < 32 && node != null; bit++)
+                {
+                    node = node.child((bits >>> (31 - bit)) & 1, false);
+                    if (node != null && node.action != NONE)
+                    {
+                        action = node.action;
+                    }
+                }
+            }
+            else
+            {
+                Node node = ipv6;
+                action = node.action;
+                for (int bit = 0; bit < bytes.length * 8 && node != null; bit++)
+                {
+                    node = node.child(bitOf(bytes, bit), false);
+                    if (node != null && node.action != NONE)
+                    {
+                        action = node.action;
+                    }
+                }
+            }
+
+            return action == NONE ? allowByDefault : action == ALLOW;
+        }
+
+        private static int bitOf(byte[] bytes, int bit)
+        {
+            return (bytes[bit >>> 3] >>> (7 - (bit & 7))) & 1;
+        }
+    }
+
+    private static final class Node
+    {
+        private Node zero;
+        private Node one;
+        private byte action = NONE;
+
+        private Node child(int bit, boolean create)
+        {
+            if (bit == 0)
+            {
+                if (zero == null && create)
+                {
+                    zero = new Node();
+                }
+                return zero;
+            }
+            else
+            {
+                if (one == null && create)
+                {
+                    one = new Node();
+                }
+                return one;
+            }
+        }
+    }
+}
@@ -0,0 +1,60 @@
+package fr.diskmth.socketimpl.server;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+
+public class MetricsEndpoint
+{
+    public static final String PATH = "/metrics";
+    public static final String CONTENT_TYPE = "text/plain; version=0.0.4; charset=utf-8";
+
+    private final ServerMetrics metrics;
+    private final HttpServer httpServer;
+
+    public MetricsEndpoint(ServerMetrics metrics, InetSocketAddress address) throws IOException
+    {
+        this.metrics = metrics;
+        this.httpServer = HttpServer.create(address, 0);
+        this.httpServer.createContext(PATH, this::handle);
+    }
+
+    private void handle(HttpExchange exchange) throws IOException
+    {
+        try (exchange)
+        {
+            if (!exchange.getRequestMethod().equals("GET"))
+            {
+                exchange.sendResponseHeaders(405, -1);
+                return;
+            }
+
+            final byte[] body = metrics.toPrometheus().getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().set("Content-Type", CONTENT_TYPE);
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream output = exchange.getResponseBody())
+            {
+                output.write(body);
+            }
+        }
+    }
+
+    public void start()
+    {
+        httpServer.start();
+    }
+
+    public void stop()
+    {
+        httpServer.stop(0);
+    }
+
+    public InetSocketAddress getAddress()
+    {
+        return httpServer.getAddress();
+    }
+}
@@ -0,0 +1,88 @@
+package fr.diskmth.socketimpl.server;
+
+import fr.diskmth.socketimpl.common.Packet;
+import fr.diskmth.socketimpl.common.PacketBuffer;
+import fr.diskmth.socketimpl.common.PacketBufferPool;
+
+import java.nio.ByteBuffer;
+
+public class OutboundFrame
+{
+    private final PacketBuffer.Writer writer;
+    private final PacketBufferPool bufferPool;
+    private final SharedFrame sharedFrame;
+    private final ByteBuffer buffer;
+    private final Packet.Priority priority;
+    private final int packetId;
+    private final int size;
+
+    protected OutboundFrame(PacketBuffer.Writer writer, PacketBufferPool bufferPool, int packetId, Packet.Priority priority)
+    {
+        this.writer = writer;
+        this.bufferPool = bufferPool;
+        this.sharedFrame = null;
+        this.buffer = writer.toByteBuffer();
+        this.priority = priority;
+        this.packetId = packetId;
+        this.size = buffer.remaining();
+    }
+
+    protected OutboundFrame(int packetId, Packet.Priority priority)
+    {
+        this.writer = null;
+        this.bufferPool = null;
+        this.sharedFrame = null;
+        this.buffer = null;
+        this.priority = priority;
+        this.packetId = packetId;
+        this.size = 0;
+    }
+
+    protected OutboundFrame(SharedFrame sharedFrame)
+    {
+        this.writer = null;
+        this.bufferPool = null;
+        this.sharedFrame = sharedFrame;
+        this.buffer = sharedFrame.duplicate();
+        this.priority = sharedFrame.getPriority();
+        this.packetId = sharedFrame.getPacketId();
+        this.size = buffer.remaining();
+    }
+
+    public ByteBuffer getBuffer()
+    {
+        return buffer;
+    }
+
+    public boolean isDone()
+    {
+        return !getBuffer().hasRemaining();
+    }
+
+    public int getPacketId()
+    {
+        return packetId;
+    }
+
+    public int getSize()
+    {
+        return size;
+    }
+
+    public Packet.Priority getPriority()
+    {
+        return priority;
+    }
+
+    public void release()
+    {
+        if (sharedFrame != null)
+        {
+            sharedFrame.release();
+        }
+        else
+        {
+            bufferPool.release(writer);
+        }
+    }
+}
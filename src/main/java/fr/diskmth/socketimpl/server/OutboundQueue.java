@@ -0,0 +1,51 @@
+package fr.diskmth.socketimpl.server;
+
+import fr.diskmth.socketimpl.common.Packet;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+public class OutboundQueue
+{
+    private final List<Queue<OutboundFrame>> queues = new ArrayList<>(Packet.Priority.values().length);
+
+    public OutboundQueue()
+    {
+        for (int i = 0; i < Packet.Priority.values().length; i++)
+        {
+            queues.add(new ConcurrentLinkedQueue<>());
+        }
+    }
+
+    public void add(OutboundFrame frame)
+    {
+        queues.get(frame.getPriority().ordinal()).add(frame);
+    }
+
+    public OutboundFrame poll()
+    {
+        for (Queue<OutboundFrame> queue : queues)
+        {
+            final OutboundFrame frame = queue.poll();
+            if (frame != null)
+            {
+                return frame;
+            }
+        }
+        return null;
+    }
+
+    public boolean isEmpty()
+    {
+        for (Queue<OutboundFrame> queue : queues)
+        {
+            if (!queue.isEmpty())
+            {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -2,18 +2,32 @@ package fr.diskmth.socketimpl.server;
 
 import fr.diskmth.loggy.Logger;
 import fr.diskmth.loggy.LogsFile;
+import fr.diskmth.socketimpl.common.AsyncLogger;
+import fr.diskmth.socketimpl.common.FrameDecoder;
+import fr.diskmth.socketimpl.common.Packet;
+import fr.diskmth.socketimpl.common.PacketBufferPool;
+import fr.diskmth.socketimpl.common.PacketContext;
 import fr.diskmth.socketimpl.common.SSLCertificate;
+import fr.diskmth.socketimpl.common.StringCache;
 
 import javax.net.ServerSocketFactory;
 import javax.net.ssl.SSLContext;
+import javax.net.ssl.SSLEngine;
 import javax.net.ssl.SSLServerSocket;
+import javax.net.ssl.SSLSocket;
 import java.io.IOException;
+import java.net.InetAddress;
 import java.net.InetSocketAddress;
 import java.net.ServerSocket;
 import java.net.Socket;
 import java.net.SocketException;
+import java.nio.channels.ServerSocketChannel;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Predicate;
 
 public class Server
 {
@@ -28,22 +42,45 @@ public class Server
     private final boolean serverCallsLogsInit;
     private final int maxEnqueuedRequests;
     private final ExecutorService threadPool;
+    private final int eventLoopsCount;
+    private final int maxFrameSize;
+    private final PacketBufferPool bufferPool;
+    private final StringCache stringCache;
+    private final int lowWatermark;
+    private final int highWatermark;
+    private final BackpressurePolicy backpressurePolicy;
+    private final long maxQueuedBytes;
+    private final WritabilityListener writabilityListener;
+    private final AsyncLogger asyncLogger;
+    private final InetSocketAddress metricsAddress;
     private final CommandsHandler commandsHandler;
-    private final List<String> forbiddenIps;
-
-    private final List<ClientProcess> clients = new ArrayList<>();
+    private final IpFilter ipFilter;
+    private final AdmissionController admissionController;
+    private final boolean tcpNoDelay;
+
+    private final Map<UUID, ClientProcess> clients = new ConcurrentHashMap<>();
+    private final PacketContext.Server context;
+    private final AtomicLong queuedBytes = new AtomicLong();
+    private final ServerMetrics metrics;
     private boolean isInit = false;
     private boolean isStarted = false;
     private boolean isPaused = false;
     private boolean areCommandsPaused = false;
+    private SSLContext sslContext;
     private ServerSocket serverSocket;
+    private ServerEventLoop[] eventLoops;
+    private ExecutorService writerExecutor;
+    private MetricsEndpoint metricsEndpoint;
+    private int nextEventLoop = 0;
 
     /*---------------------------------------- Constructors ----------------------------------------*/
 
     protected Server(
             Logger logger, InetSocketAddress address, SSLCertificate sslCertificate,
             LogsFile genericsLogs, boolean genericsLogsInit, LogsFile serverCallsLogs, boolean serverCallsLogsInit,
-            int maxEnqueuedRequests, ExecutorService threadPool, CommandsHandler commandsHandler, List<String> forbiddenIps)
+            int maxEnqueuedRequests, ExecutorService threadPool, int eventLoopsCount, int maxFrameSize, PacketBufferPool bufferPool, StringCache stringCache,
+            int lowWatermark, int highWatermark, BackpressurePolicy backpressurePolicy, long maxQueuedBytes, WritabilityListener writabilityListener,
+            AsyncLogger asyncLogger, InetSocketAddress metricsAddress, CommandsHandler commandsHandler, IpFilter ipFilter, AdmissionController admissionController, boolean tcpNoDelay)
     {
         this.logger = logger;
         this.address = address;
@@ -54,8 +91,23 @@ public class Server
         this.serverCallsLogsInit = serverCallsLogsInit;
         this.maxEnqueuedRequests = maxEnqueuedRequests;
         this.threadPool = threadPool;
+        this.eventLoopsCount = eventLoopsCount;
+        this.maxFrameSize = maxFrameSize;
+        this.bufferPool = bufferPool;
+        this.stringCache = stringCache;
+        this.lowWatermark = lowWatermark;
+        this.highWatermark = highWatermark;
+        this.backpressurePolicy = backpressurePolicy;
+        this.maxQueuedBytes = maxQueuedBytes;
+        this.writabilityListener = writabilityListener;
+        this.asyncLogger = asyncLogger;
+        this.metricsAddress = metricsAddress;
         this.commandsHandler = commandsHandler;
-        this.forbiddenIps = forbiddenIps;
+        this.ipFilter = ipFilter;
+        this.admissionController = admissionController;
+        this.tcpNoDelay = tcpNoDelay;
+        this.metrics = new ServerMetrics(clients.values(), queuedBytes, asyncLogger);
+        this.context = new PacketContext.Server(logger, genericsLogs, serverCallsLogs);
     }
 
     /*---------------------------------------- Misc methods ----------------------------------------*/
@@ -83,11 +135,12 @@ public class Server
             serverCallsLogs.init();
         }
 
+        asyncLogger.start();
+
         if (sslCertificate != null)
         {
-            logger.log("The server is initializing with SSL (https mode)", genericsLogs);
+            logger.log("The server is initializing with SSL (https mode)" + (eventLoopsCount > 0 ? " on " + eventLoopsCount + " event loops" : ""), genericsLogs);
 
-            SSLContext sslContext;
             try
             {
                 logger.log("Generation of the SSL context", genericsLogs);
@@ -97,10 +150,46 @@ public class Server
             catch (Exception exception)
             {
                 logger.error("Error during generation of the SSL context", exception, genericsLogs);
-                close();
+                release();
                 return;
             }
+        }
+        else if (eventLoopsCount > 0)
+        {
+            logger.log("The server is initializing without SSl (http mode) on " + eventLoopsCount + " event loops", genericsLogs);
+        }
+        else
+        {
+            logger.log("The server is initializing without SSl (http mode)", genericsLogs);
+        }
 
+        if (eventLoopsCount > 0)
+        {
+            try
+            {
+                logger.log("Generation of the server channel", genericsLogs);
+                final ServerSocketChannel serverChannel = ServerSocketChannel.open();
+                serverSocket = serverChannel.socket();
+                serverChannel.bind(address, maxEnqueuedRequests);
+                logger.log("The server channel has been generated", genericsLogs);
+
+                eventLoops = new ServerEventLoop[eventLoopsCount];
+                for (int i = 0; i < eventLoopsCount; i++)
+                {
+                    eventLoops[i] = new ServerEventLoop(i, logger, genericsLogs);
+                    eventLoops[i].start();
+                }
+                logger.log("The event loops have been started", genericsLogs);
+            }
+            catch (IOException exception)
+            {
+                logger.error("Error during generation of the server channel", exception, genericsLogs);
+                release();
+                return;
+            }
+        }
+        else if (sslContext != null)
+        {
             try
             {
                 logger.log("Generation of the server socket", genericsLogs);
@@ -112,14 +201,12 @@ public class Server
             catch (IOException exception)
             {
                 logger.error("Error during generation of the server socket", exception, genericsLogs);
-                close();
+                release();
                 return;
             }
         }
         else
         {
-            logger.log("The server is initializing without SSl (http mode)", genericsLogs);
-
             try
             {
                 logger.log("Generation of the server socket", genericsLogs);
@@ -129,7 +216,44 @@ public class Server
             catch (IOException exception)
             {
                 logger.error("Error during generation of the server socket", exception, genericsLogs);
-                close();
+                release();
+                return;
+            }
+        }
+
+        if (eventLoopsCount <= 0)
+        {
+            writerExecutor = Executors.newCachedThreadPool(Thread.ofPlatform().name("SocketImpl-Writer-", 0).daemon(true).factory());
+        }
+
+        if (ipFilter.getFile() != null)
+        {
+            try
+            {
+                ipFilter.reload();
+                ipFilter.startWatching(logger, genericsLogs);
+                logger.log("The IP filter has been loaded with " + ipFilter.ruleCount() + " rules from: " + ipFilter.getFile(), genericsLogs);
+            }
+            catch (IOException exception)
+            {
+                logger.error("Error during loading of the IP filter", exception, genericsLogs);
+                release();
+                return;
+            }
+        }
+
+        if (metricsAddress != null)
+        {
+            try
+            {
+                metricsEndpoint = new MetricsEndpoint(metrics, metricsAddress);
+                metricsEndpoint.start();
+                logger.log("The metrics endpoint is listening on: " + metricsAddress.getHostString() + ":" + metricsEndpoint.getAddress().getPort() + MetricsEndpoint.PATH, genericsLogs);
+            }
+            catch (IOException exception)
+            {
+                logger.error("Error during generation of the metrics endpoint", exception, genericsLogs);
+                release();
                 return;
             }
         }
@@ -162,36 +286,119 @@ public class Server
 
         while (isStarted)
         {
+            final Socket clientSocket;
             try
             {
-                final Socket clientSocket = serverSocket.accept();
-
-                if (isPaused)
+                clientSocket = serverSocket.accept();
+            }
+            catch (IOException exception)
+            {
+                if (exception instanceof SocketException)
                 {
-                    logger.log("Request skipped from: " + clientSocket.getInetAddress().getHostAddress() + " because server is paused", genericsLogs);
-                    clientSocket.close();
-                    continue;
+                    logger.log("Incoming client socket closed", genericsLogs);
                 }
-                else if (forbiddenIps.contains(clientSocket.getInetAddress().getHostAddress()))
+
+                logger.error("Error while closing incoming client socket", exception, genericsLogs);
+                continue;
+            }
+
+            try
+            {
+                handleClient(clientSocket);
+            }
+            catch (IOException | RuntimeException exception)
+            {
+                asyncLogger.error(() -> "Error while handling incoming client socket", exception, genericsLogs);
+                try
                 {
-                    logger.warn("Forbidden request skipped from: " + clientSocket.getInetAddress().getHostAddress(), genericsLogs, serverCallsLogs);
                     clientSocket.close();
-                    continue;
                 }
+                catch (IOException ignored) {}
+            }
+        }
+    }
+
+    private void handleClient(Socket clientSocket) throws IOException
+    {
+        clientSocket.setTcpNoDelay(tcpNoDelay);
+        final InetAddress clientAddress = clientSocket.getInetAddress();
+
+        if (isPaused)
+        {
+            asyncLogger.log(() -> "Request skipped from: " + clientAddress.getHostAddress() + " because server is paused", genericsLogs);
+            metrics.connectionRejected("paused");
+            clientSocket.close();
+            return;
+        }
+        else if (!ipFilter.isAllowed(clientAddress))
+        {
+            asyncLogger.warn(() -> "Forbidden request skipped from: " + clientAddress.getHostAddress(), genericsLogs, serverCallsLogs);
+            metrics.connectionRejected("forbidden");
+            clientSocket.close();
+            return;
+        }
+
+        final String rejection = admissionController.tryAdmit(clientAddress);
+        if (rejection != null)
+        {
+            asyncLogger.warn(() -> "Request rejected from: " + clientAddress.getHostAddress() + " by admission control (" + rejection + ")", genericsLogs, serverCallsLogs);
+            metrics.connectionRejected(rejection);
+            clientSocket.setSoLinger(true, 0);
+            clientSocket.close();
+            return;
+        }
 
-                clients.add(new ClientProcess(clientSocket, logger, genericsLogs, serverCallsLogs));
-                logger.log("Request handled from: " + clientSocket.getInetAddress().getHostAddress() + ". Process id: " + clients.get(clients.size() - 1).clientId, genericsLogs, serverCallsLogs);
+        metrics.connectionAccepted();
 
-                threadPool.submit(() -> clients.get(clients.size() - 1).run());
+        if (eventLoops != null)
+        {
+            final ServerEventLoop eventLoop = eventLoops[Math.floorMod(nextEventLoop++, eventLoops.length)];
+            final ChannelClientProcess clientProcess;
+            try
+            {
+                clientProcess = sslContext != null
+                        ? new ChannelClientProcess(clientSocket.getChannel(), createSSLEngine(clientSocket), eventLoop, this)
+                        : new ChannelClientProcess(clientSocket.getChannel(), eventLoop, this);
             }
-            catch (IOException exception)
+            catch (IOException | RuntimeException exception)
             {
-                if (exception instanceof SocketException)
-                {
-                    logger.log("Incoming client socket closed", genericsLogs);
-                }
+                admissionController.release(clientAddress);
+                clientSocket.close();
+                throw exception;
+            }
+            clients.put(clientProcess.clientId, clientProcess);
+            asyncLogger.log(() -> "Request handled from: " + clientAddress.getHostAddress() + ". Process id: " + clientProcess.clientId, genericsLogs, serverCallsLogs);
 
-                logger.error("Error while closing incoming client socket", exception, genericsLogs);
+            try
+            {
+                eventLoop.register(clientProcess);
+            }
+            catch (RuntimeException exception)
+            {
+                clientProcess.close();
+                throw exception;
+            }
+        }
+        else
+        {
+            if (clientSocket instanceof SSLSocket sslSocket)
+            {
+                final long acceptedAt = System.nanoTime();
+                sslSocket.addHandshakeCompletedListener(event -> metrics.getHandshakeTime().recordSince(acceptedAt));
+            }
+
+            final SocketClientProcess clientProcess = new SocketClientProcess(clientSocket, this);
+            clients.put(clientProcess.clientId, clientProcess);
+            asyncLogger.log(() -> "Request handled from: " + clientAddress.getHostAddress() + ". Process id: " + clientProcess.clientId, genericsLogs, serverCallsLogs);
+
+            try
+            {
+                threadPool.submit(clientProcess);
+            }
+            catch (RuntimeException exception)
+            {
+                clientProcess.close();
+                throw exception;
             }
         }
     }
@@ -212,10 +419,7 @@ public class Server
 
         logger.log("Server is stopping", genericsLogs);
 
-        //this.clients.forEach((client) -> client.);
-
-        //TODO: kill clients
-
+        clients.values().forEach(ClientProcess::close);
         clients.clear();
         logger.log("Server is stopped", genericsLogs);
         isStarted = false;
@@ -235,20 +439,60 @@ public class Server
         }
 
         logger.log("The server is closing", genericsLogs);
+        release();
 
-        try
+        if (commandsHandler != null && commandsHandler != Thread.currentThread())
+        {
+            commandsHandler.interrupt();
+        }
+    }
+
+    private void release()
+    {
+        if (serverSocket != null)
         {
-            serverSocket.close();
+            try
+            {
+                serverSocket.close();
+                logger.log("The server socket has been closed", genericsLogs);
+            }
+            catch (IOException exception)
+            {
+                logger.log("Unable to close the server socket", genericsLogs);
+            }
             serverSocket = null;
-            logger.log("The server socket has been closed", genericsLogs);
         }
-        catch (IOException | NullPointerException exception)
+
+        if (metricsEndpoint != null)
+        {
+            metricsEndpoint.stop();
+            metricsEndpoint = null;
+            logger.log("The metrics endpoint has been stopped", genericsLogs);
+        }
+
+        ipFilter.stopWatching();
+
+        if (eventLoops != null)
         {
-            logger.log("Unable to close the server socket", genericsLogs);
+            for (ServerEventLoop eventLoop : eventLoops)
+            {
+                if (eventLoop != null)
+                {
+                    eventLoop.shutdown();
+                }
+            }
+            eventLoops = null;
+            logger.log("The event loops have been stopped", genericsLogs);
+        }
+
+        if (writerExecutor != null)
+        {
+            writerExecutor.shutdown();
         }
 
         logger.log("The server is closed", genericsLogs);
         isInit = false;
+        asyncLogger.close();
 
         if (genericsLogsInit && genericsLogs != null)
         {
@@ -261,6 +505,19 @@ public class Server
         }
     }
 
+    public void reloadIpFilter()
+    {
+        try
+        {
+            ipFilter.reload();
+            logger.log("The IP filter has been reloaded with " + ipFilter.ruleCount() + " rules", genericsLogs);
+        }
+        catch (IOException exception)
+        {
+            logger.error("Unable to reload the IP filter, previous rules are kept", exception, genericsLogs);
+        }
+    }
+
     public void pause(boolean pause)
     {
         if (!isInit || !isStarted)
@@ -321,6 +578,81 @@ public class Server
         }
     }
 
+    public SharedFrame encodeShared(Packet.S2C packet)
+    {
+        final int packetId = ClientProcess.packetIdOf(packet.getClass());
+        return new SharedFrame(ClientProcess.encodePacket(packet, packetId, FrameDecoder.NO_REQUEST, bufferPool, context, metrics), bufferPool, packetId, packet.priority());
+    }
+
+    public void broadcast(Packet.S2C packet)
+    {
+        multicast(clients.values(), packet);
+    }
+
+    public void multicast(Predicate<ClientProcess> filter, Packet.S2C packet)
+    {
+        final SharedFrame frame = encodeShared(packet);
+        try
+        {
+            for (ClientProcess clientProcess : clients.values())
+            {
+                if (filter.test(clientProcess))
+                {
+                    clientProcess.sendFrame(frame);
+                    clientProcess.scheduleFlush();
+                }
+            }
+        }
+        finally
+        {
+            frame.release();
+        }
+    }
+
+    public void multicast(Collection<ClientProcess> group, Packet.S2C packet)
+    {
+        final SharedFrame frame = encodeShared(packet);
+        try
+        {
+            for (ClientProcess clientProcess : group)
+            {
+                clientProcess.sendFrame(frame);
+                clientProcess.scheduleFlush();
+            }
+        }
+        finally
+        {
+            frame.release();
+        }
+    }
+
+    private SSLEngine createSSLEngine(Socket clientSocket)
+    {
+        final SSLEngine sslEngine = sslContext.createSSLEngine(clientSocket.getInetAddress().getHostAddress(), clientSocket.getPort());
+        sslEngine.setUseClientMode(false);
+        sslEngine.setNeedClientAuth(true);
+        sslEngine.setEnabledProtocols(new String[]{"TLSv1.3"});
+        return sslEngine;
+    }
+
+    protected void removeClient(ClientProcess clientProcess)
+    {
+        if (clients.remove(clientProcess.clientId, clientProcess))
+        {
+            admissionController.release(clientProcess.getRemoteAddress());
+        }
+    }
+
+    protected void addQueuedBytes(long bytes)
+    {
+        queuedBytes.addAndGet(bytes);
+    }
+
+    public boolean hasQueueCapacity(int bytes)
+    {
+        return maxQueuedBytes <= 0 || queuedBytes.get() + bytes <= maxQueuedBytes;
+    }
+
     /*---------------------------------------- Getters ----------------------------------------*/
 
     //TODO: getters
@@ -330,6 +662,11 @@ public class Server
         return logger;
     }
 
+    public AsyncLogger getAsyncLogger()
+    {
+        return asyncLogger;
+    }
+
     public LogsFile getGenericsLogs()
     {
         return genericsLogs;
@@ -340,6 +677,96 @@ public class Server
         return serverCallsLogs;
     }
 
+    public ClientProcess getClient(UUID clientId)
+    {
+        return clients.get(clientId);
+    }
+
+    public Collection<ClientProcess> getClients()
+    {
+        return Collections.unmodifiableCollection(clients.values());
+    }
+
+    public int clientCount()
+    {
+        return clients.size();
+    }
+
+    public IpFilter getIpFilter()
+    {
+        return ipFilter;
+    }
+
+    public AdmissionController getAdmissionController()
+    {
+        return admissionController;
+    }
+
+    public ServerMetrics getMetrics()
+    {
+        return metrics;
+    }
+
+    public ExecutorService getThreadPool()
+    {
+        return threadPool;
+    }
+
+    public ExecutorService getWriterExecutor()
+    {
+        return writerExecutor;
+    }
+
+    public boolean isTcpNoDelay()
+    {
+        return tcpNoDelay;
+    }
+
+    public int getMaxFrameSize()
+    {
+        return maxFrameSize;
+    }
+
+    public PacketBufferPool getBufferPool()
+    {
+        return bufferPool;
+    }
+
+    public StringCache getStringCache()
+    {
+        return stringCache;
+    }
+
+    public int getLowWatermark()
+    {
+        return lowWatermark;
+    }
+
+    public int getHighWatermark()
+    {
+        return highWatermark;
+    }
+
+    public BackpressurePolicy getBackpressurePolicy()
+    {
+        return backpressurePolicy;
+    }
+
+    public long getMaxQueuedBytes()
+    {
+        return maxQueuedBytes;
+    }
+
+    public long getQueuedBytes()
+    {
+        return queuedBytes.get();
+    }
+
+    public WritabilityListener getWritabilityListener()
+    {
+        return writabilityListener;
+    }
+
     public boolean isInit()
     {
         return isInit;
@@ -2,9 +2,14 @@ package fr.diskmth.socketimpl.server;
 
 import fr.diskmth.loggy.Logger;
 import fr.diskmth.loggy.LogsFile;
+import fr.diskmth.socketimpl.common.AsyncLogger;
+import fr.diskmth.socketimpl.common.FrameDecoder;
+import fr.diskmth.socketimpl.common.PacketBufferPool;
 import fr.diskmth.socketimpl.common.SSLCertificate;
+import fr.diskmth.socketimpl.common.StringCache;
 
 import java.net.InetSocketAddress;
+import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.concurrent.ExecutorService;
@@ -21,8 +26,30 @@ public class ServerBuilder
     protected boolean serverCallsLogsInit = false;
     protected int maxEnqueuedRequests = -1;
     protected ExecutorService threadPool = Executors.newFixedThreadPool(1);
+    protected int eventLoopsCount = 0;
+    protected int maxFrameSize = FrameDecoder.DEFAULT_MAX_FRAME_SIZE;
+    protected PacketBufferPool bufferPool = new PacketBufferPool();
+    protected StringCache stringCache = null;
+    protected int lowWatermark = 32 * 1024;
+    protected int highWatermark = 64 * 1024;
+    protected BackpressurePolicy backpressurePolicy = BackpressurePolicy.SIGNAL;
+    protected long maxQueuedBytes = 0;
+    protected WritabilityListener writabilityListener = null;
+    protected int asyncLogsCapacity = AsyncLogger.DEFAULT_CAPACITY;
+    protected final int[] logsSampling = {1, 1, 1};
+    protected InetSocketAddress metricsAddress = null;
     protected CommandsHandler commandsHandler = null;
     protected final List<String> forbiddenIps = new ArrayList<>();
+    protected final List<String> allowedIps = new ArrayList<>();
+    protected Path ipFilterFile = null;
+    protected long ipFilterReloadInterval = IpFilter.DEFAULT_RELOAD_INTERVAL_MILLIS;
+    protected int maxConnectionsPerIp = 0;
+    protected double acceptRatePerIp = 0;
+    protected int acceptBurstPerIp = 0;
+    protected double globalAcceptRate = 0;
+    protected int globalAcceptBurst = 0;
+    protected int maxTrackedIps = AdmissionController.DEFAULT_MAX_TRACKED_IPS;
+    protected boolean tcpNoDelay = false;
 
     public ServerBuilder(Logger logger)
     {
@@ -74,6 +101,86 @@ public class ServerBuilder
         return this;
     }
 
+    public ServerBuilder virtualThreads()
+    {
+        threadPool = Executors.newVirtualThreadPerTaskExecutor();
+        return this;
+    }
+
+    public ServerBuilder nonBlocking(int eventLoopsCount)
+    {
+        if (eventLoopsCount > 0)
+        {
+            this.eventLoopsCount = eventLoopsCount;
+        }
+        else
+        {
+            this.eventLoopsCount = Runtime.getRuntime().availableProcessors();
+        }
+        return this;
+    }
+
+    public ServerBuilder maxFrameSize(int maxFrameSize)
+    {
+        this.maxFrameSize = maxFrameSize;
+        return this;
+    }
+
+    public ServerBuilder bufferPool(int bufferSize, int maxPooled, boolean direct)
+    {
+        bufferPool = new PacketBufferPool(bufferSize, maxPooled, direct);
+        return this;
+    }
+
+    public ServerBuilder stringCache(int size, int maxLength)
+    {
+        stringCache = new StringCache(size, maxLength);
+        return this;
+    }
+
+    public ServerBuilder writeWatermarks(int lowWatermark, int highWatermark)
+    {
+        this.lowWatermark = lowWatermark;
+        this.highWatermark = highWatermark;
+        return this;
+    }
+
+    public ServerBuilder backpressurePolicy(BackpressurePolicy backpressurePolicy)
+    {
+        this.backpressurePolicy = backpressurePolicy;
+        return this;
+    }
+
+    public ServerBuilder maxQueuedBytes(long maxQueuedBytes)
+    {
+        this.maxQueuedBytes = maxQueuedBytes;
+        return this;
+    }
+
+    public ServerBuilder onWritabilityChanged(WritabilityListener writabilityListener)
+    {
+        this.writabilityListener = writabilityListener;
+        return this;
+    }
+
+    public ServerBuilder asyncLogs(int capacity)
+    {
+        asyncLogsCapacity = capacity;
+        return this;
+    }
+
+    public ServerBuilder sampleLogs(AsyncLogger.Level level, int oneIn)
+    {
+        logsSampling[level.ordinal()] = oneIn;
+        return this;
+    }
+
+    public ServerBuilder metricsEndpoint(String host, int port)
+    {
+        metricsAddress = new InetSocketAddress(host, port);
+        return this;
+    }
+
     public ServerBuilder addCommandsHandler(CommandsHandler commandsHandler)
     {
         this.commandsHandler = commandsHandler;
@@ -91,11 +198,81 @@ public class ServerBuilder
         return this;
     }
 
+    public ServerBuilder addAllowedIps(String... allowedIps)
+    {
+        this.allowedIps.addAll(List.of(allowedIps));
+        return this;
+    }
+
+    public ServerBuilder ipFilterFile(Path file)
+    {
+        return ipFilterFile(file, IpFilter.DEFAULT_RELOAD_INTERVAL_MILLIS);
+    }
+
+    public ServerBuilder ipFilterFile(Path file, long reloadIntervalMillis)
+    {
+        ipFilterFile = file;
+        ipFilterReloadInterval = reloadIntervalMillis;
+        return this;
+    }
+
+    public ServerBuilder maxConnectionsPerIp(int maxConnectionsPerIp)
+    {
+        this.maxConnectionsPerIp = maxConnectionsPerIp;
+        return this;
+    }
+
+    public ServerBuilder acceptRatePerIp(double perSecond, int burst)
+    {
+        acceptRatePerIp = perSecond;
+        acceptBurstPerIp = burst;
+        return this;
+    }
+
+    public ServerBuilder globalAcceptRate(double perSecond, int burst)
+    {
+        globalAcceptRate = perSecond;
+        globalAcceptBurst = burst;
+        return this;
+    }
+
+    public ServerBuilder maxTrackedIps(int maxTrackedIps)
+    {
+        this.maxTrackedIps = maxTrackedIps;
+        return this;
+    }
+
+    public ServerBuilder tcpNoDelay(boolean tcpNoDelay)
+    {
+        this.tcpNoDelay = tcpNoDelay;
+        return this;
+    }
+
     public Server build()
     {
         if (logger == null) throw new NullPointerException("Server logger can't be null");
         if (address == null) throw new NullPointerException("Server address can't be null");
+        if (maxFrameSize <= 0) throw new IllegalArgumentException("Max frame size must be positive");
+        if (lowWatermark < 0 || lowWatermark > highWatermark) throw new IllegalArgumentException("Write watermarks must satisfy 0 <= low <= high");
+        if (backpressurePolicy == null) throw new NullPointerException("Backpressure policy can't be null");
+        if (asyncLogsCapacity <= 0) throw new IllegalArgumentException("Async logs capacity must be positive");
+        if (acceptRatePerIp > 0 && acceptBurstPerIp < 1) throw new IllegalArgumentException("Per IP accept burst must be at least 1");
+        if (globalAcceptRate > 0 && globalAcceptBurst < 1) throw new IllegalArgumentException("Global accept burst must be at least 1");
+        if (maxTrackedIps <= 0) throw new IllegalArgumentException("Max tracked IPs must be positive");
+
+        final IpFilter ipFilter = new IpFilter().deny(forbiddenIps.toArray(new String[0])).allow(allowedIps.toArray(new String[0]));
+        if (ipFilterFile != null)
+        {
+            ipFilter.file(ipFilterFile, ipFilterReloadInterval);
+        }
+
+        final AsyncLogger asyncLogger = new AsyncLogger(logger, asyncLogsCapacity, genericsLogs);
+        for (AsyncLogger.Level level : AsyncLogger.Level.values())
+        {
+            asyncLogger.sample(level, logsSampling[level.ordinal()]);
+        }
 
-        return new Server(logger, address, sslCertificate, genericsLogs, genericsLogsInit, serverCallsLogs, serverCallsLogsInit, maxEnqueuedRequests, threadPool, commandsHandler, forbiddenIps);
+        return new Server(logger, address, sslCertificate, genericsLogs, genericsLogsInit, serverCallsLogs, serverCallsLogsInit, maxEnqueuedRequests, threadPool, eventLoopsCount, maxFrameSize, bufferPool, stringCache, lowWatermark, highWatermark, backpressurePolicy, maxQueuedBytes, writabilityListener, asyncLogger, metricsAddress, commandsHandler, ipFilter,
+                new AdmissionController(maxConnectionsPerIp, acceptRatePerIp, acceptBurstPerIp, globalAcceptRate, globalAcceptBurst, maxTrackedIps), tcpNoDelay);
     }
 }
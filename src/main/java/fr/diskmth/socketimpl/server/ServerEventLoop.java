@@ -0,0 +1,136 @@
+package fr.diskmth.socketimpl.server;
+
+import fr.diskmth.loggy.Logger;
+import fr.diskmth.loggy.LogsFile;
+
+import java.io.IOException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.util.Iterator;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+public final class ServerEventLoop extends Thread
+{
+    private final Logger logger;
+    private final LogsFile genericsLogs;
+    private final Selector selector;
+    private final Queue<Runnable> tasks = new ConcurrentLinkedQueue<>();
+
+    private volatile boolean isRunning = true;
+
+    protected ServerEventLoop(int index, Logger logger, LogsFile genericsLogs) throws IOException
+    {
+        super("SocketImpl-EventLoop-" + index);
+        this.logger = logger;
+        this.genericsLogs = genericsLogs;
+        this.selector = Selector.open();
+        setDaemon(true);
+    }
+
+    protected void register(ChannelClientProcess clientProcess)
+    {
+        execute(() ->
+        {
+            try
+            {
+                clientProcess.register(selector);
+            }
+            catch (IOException exception)
+            {
+                logger.warn(clientProcess.clientId + ": Unable to register client channel", exception, genericsLogs);
+                clientProcess.close();
+            }
+        });
+    }
+
+    protected void execute(Runnable task)
+    {
+        if (Thread.currentThread() == this)
+        {
+            task.run();
+            return;
+        }
+
+        tasks.add(task);
+        selector.wakeup();
+    }
+
+    @Override
+    public void run()
+    {
+        while (isRunning)
+        {
+            try
+            {
+                selector.select();
+            }
+            catch (IOException exception)
+            {
+                logger.error("Error while selecting ready channels", exception, genericsLogs);
+                break;
+            }
+
+            runTasks();
+
+            final Iterator<SelectionKey> selectedKeys = selector.selectedKeys().iterator();
+            while (selectedKeys.hasNext())
+            {
+                final SelectionKey key = selectedKeys.next();
+                selectedKeys.remove();
+
+                if (key.isValid())
+                {
+                    final ChannelClientProcess clientProcess = (ChannelClientProcess) key.attachment();
+                    try
+                    {
+                        clientProcess.handle(key);
+                    }
+                    catch (RuntimeException exception)
+                    {
+                        logger.warn(clientProcess.clientId + ": Unexpected error while handling client channel", exception, genericsLogs);
+                        clientProcess.close();
+                    }
+                }
+            }
+        }
+
+        for (SelectionKey key : selector.keys())
+        {
+            ((ChannelClientProcess) key.attachment()).close();
+        }
+
+        runTasks();
+
+        try
+        {
+            selector.close();
+        }
+        catch (IOException exception)
+        {
+            logger.warn("Unable to close the selector", exception, genericsLogs);
+        }
+    }
+
+    private void runTasks()
+    {
+        Runnable task;
+        while ((task = tasks.poll()) != null)
+        {
+            try
+            {
+                task.run();
+            }
+            catch (RuntimeException exception)
+            {
+                logger.error("Unexpected error while running an event loop task", exception, genericsLogs);
+            }
+        }
+    }
+
+    protected void shutdown()
+    {
+        isRunning = false;
+        selector.wakeup();
+    }
+}
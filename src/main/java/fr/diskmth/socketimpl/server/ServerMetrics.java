@@ -0,0 +1,302 @@
+package fr.diskmth.socketimpl.server;
+
+import fr.diskmth.socketimpl.common.AsyncLogger;
+import fr.diskmth.socketimpl.common.LatencyHistogram;
+import fr.diskmth.socketimpl.common.Packet;
+import fr.diskmth.socketimpl.common.PacketRegistry;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+
+public class ServerMetrics
+{
+    public static final double[] QUANTILES = {0.5, 0.9, 0.99, 0.999};
+    public static final long[] QUEUED_BYTES_BUCKETS = {0, 1024, 16 * 1024, 64 * 1024, 256 * 1024, 1024 * 1024, 16 * 1024 * 1024};
+    public static final String PREFIX = "socketimpl_";
+
+    private final Collection<ClientProcess> clients;
+    private final AtomicLong queuedBytes;
+    private final AsyncLogger asyncLogger;
+    private final LongAdder acceptedConnections = new LongAdder();
+    private final Map<String, LongAdder> rejectedConnections = new ConcurrentHashMap<>();
+    private final AtomicReferenceArray<PacketCounters> packets = new AtomicReferenceArray<>(PacketRegistry.MAX_PACKET_ID + 1);
+    private final LatencyHistogram encodeTime = new LatencyHistogram();
+    private final LatencyHistogram decodeTime = new LatencyHistogram();
+    private final LatencyHistogram handshakeTime = new LatencyHistogram();
+
+    protected ServerMetrics(Collection<ClientProcess> clients, AtomicLong queuedBytes, AsyncLogger asyncLogger)
+    {
+        this.clients = clients;
+        this.queuedBytes = queuedBytes;
+        this.asyncLogger = asyncLogger;
+    }
+
+    public void connectionAccepted()
+    {
+        acceptedConnections.increment();
+    }
+
+    public void connectionRejected(String reason)
+    {
+        rejectedConnections.computeIfAbsent(reason, key -> new LongAdder()).increment();
+    }
+
+    public void packetReceived(int packetId, long bytes)
+    {
+        final PacketCounters counters = countersOf(packetId);
+        counters.packetsIn.increment();
+        counters.bytesIn.add(bytes);
+    }
+
+    public void packetSent(int packetId, long bytes)
+    {
+        final PacketCounters counters = countersOf(packetId);
+        counters.packetsOut.increment();
+        counters.bytesOut.add(bytes);
+    }
+
+    private PacketCounters countersOf(int packetId)
+    {
+        final PacketCounters counters = packets.get(packetId);
+        if (counters != null)
+        {
+            return counters;
+        }
+
+        packets.compareAndSet(packetId, null, new PacketCounters());
+        return packets.get(packetId);
+    }
+
+    public long getAcceptedConnections()
+    {
+        return acceptedConnections.sum();
+    }
+
+    public long getRejectedConnections()
+    {
+        long total = 0;
+        for (LongAdder rejected : rejectedConnections.values())
+        {
+            total += rejected.sum();
+        }
+        return total;
+    }
+
+    public long getRejectedConnections(String reason)
+    {
+        final LongAdder rejected = rejectedConnections.get(reason);
+        return rejected != null ? rejected.sum() : 0;
+    }
+
+    public int getActiveClients()
+    {
+        return clients.size();
+    }
+
+    public long getPacketsIn(int packetId)
+    {
+        final PacketCounters counters = packets.get(packetId);
+        return counters != null ? counters.packetsIn.sum() : 0;
+    }
+
+    public long getBytesIn(int packetId)
+    {
+        final PacketCounters counters = packets.get(packetId);
+        return counters != null ? counters.bytesIn.sum() : 0;
+    }
+
+    public long getPacketsOut(int packetId)
+    {
+        final PacketCounters counters = packets.get(packetId);
+        return counters != null ? counters.packetsOut.sum() : 0;
+    }
+
+    public long getBytesOut(int packetId)
+    {
+        final PacketCounters counters = packets.get(packetId);
+        return counters != null ? counters.bytesOut.sum() : 0;
+    }
+
+    public LatencyHistogram getEncodeTime()
+    {
+        return encodeTime;
+    }
+
+    public LatencyHistogram getDecodeTime()
+    {
+        return decodeTime;
+    }
+
+    public LatencyHistogram getHandshakeTime()
+    {
+        return handshakeTime;
+    }
+
+    public void writePrometheus(Appendable output) throws IOException
+    {
+        counter(output, "connections_accepted_total", "Accepted connections");
+        output.append(PREFIX).append("connections_accepted_total ").append(String.valueOf(getAcceptedConnections())).append('\n');
+
+        counter(output, "connections_rejected_total", "Connections closed before any client process was created");
+        for (Map.Entry<String, LongAdder> rejected : rejectedConnections.entrySet())
+        {
+            output.append(PREFIX).append("connections_rejected_total{reason=\"").append(rejected.getKey()).append("\"} ").append(String.valueOf(rejected.getValue().sum())).append('\n');
+        }
+
+        gauge(output, "clients_active", "Connected clients");
+        output.append(PREFIX).append("clients_active ").append(String.valueOf(getActiveClients())).append('\n');
+
+        gauge(output, "queued_bytes", "Bytes queued for writing across all clients");
+        output.append(PREFIX).append("queued_bytes ").append(String.valueOf(queuedBytes.get())).append('\n');
+
+        writeClientQueuedBytes(output);
+
+        counter(output, "packets_received_total", "Packets received per packet id");
+        writePackets(output, "packets_received_total", 0);
+        counter(output, "bytes_received_total", "Frame bytes received per packet id");
+        writePackets(output, "bytes_received_total", 1);
+        counter(output, "packets_sent_total", "Packets queued for sending per packet id");
+        writePackets(output, "packets_sent_total", 2);
+        counter(output, "bytes_sent_total", "Frame bytes queued for sending per packet id");
+        writePackets(output, "bytes_sent_total", 3);
+
+        counter(output, "logs_dropped_total", "Log messages dropped because the async logs buffer was full");
+        output.append(PREFIX).append("logs_dropped_total ").append(String.valueOf(asyncLogger.getDropped())).append('\n');
+        counter(output, "logs_sampled_out_total", "Log messages skipped by sampling");
+        output.append(PREFIX).append("logs_sampled_out_total ").append(String.valueOf(asyncLogger.getSampledOut())).append('\n');
+
+        summary(output, "packet_encode_seconds", "Time spent encoding a packet into a frame", encodeTime);
+        summary(output, "packet_decode_seconds", "Time spent instantiating and receiving a packet", decodeTime);
+        summary(output, "tls_handshake_seconds", "TLS handshake duration from accept", handshakeTime);
+    }
+
+    private void writeClientQueuedBytes(Appendable output) throws IOException
+    {
+        final long[] buckets = new long[QUEUED_BYTES_BUCKETS.length];
+        long sum = 0;
+        long count = 0;
+        long max = 0;
+        for (ClientProcess clientProcess : clients)
+        {
+            final long queued = clientProcess.getQueuedBytes();
+            for (int i = 0; i < buckets.length; i++)
+            {
+                if (queued <= QUEUED_BYTES_BUCKETS[i])
+                {
+                    buckets[i]++;
+                }
+            }
+            sum += queued;
+            count++;
+            max = Math.max(max, queued);
+        }
+
+        output.append("# HELP ").append(PREFIX).append("client_queued_bytes Distribution of bytes queued for writing per client\n");
+        output.append("# TYPE ").append(PREFIX).append("client_queued_bytes histogram\n");
+        for (int i = 0; i < buckets.length; i++)
+        {
+            output.append(PREFIX).append("client_queued_bytes_bucket{le=\"").append(String.valueOf(QUEUED_BYTES_BUCKETS[i])).append("\"} ").append(String.valueOf(buckets[i])).append('\n');
+        }
+        output.append(PREFIX).append("client_queued_bytes_bucket{le=\"+Inf\"} ").append(String.valueOf(count)).append('\n');
+        output.append(PREFIX).append("client_queued_bytes_sum ").append(String.valueOf(sum)).append('\n');
+        output.append(PREFIX).append("client_queued_bytes_count ").append(String.valueOf(count)).append('\n');
+
+        gauge(output, "client_queued_bytes_max", "Largest number of bytes queued for writing to a single client");
+        output.append(PREFIX).append("client_queued_bytes_max ").append(String.valueOf(max)).append('\n');
+    }
+
+    private void writePackets(Appendable output, String name, int field) throws IOException
+    {
+        for (int packetId = 0; packetId < packets.length(); packetId++)
+        {
+            final PacketCounters counters = packets.get(packetId);
+            if (counters == null)
+            {
+                continue;
+            }
+
+            final LongAdder value = field == 0 ? counters.packetsIn : field == 1 ? counters.bytesIn : field == 2 ? counters.packetsOut : counters.bytesOut;
+            output.append(PREFIX).append(name).append("{id=\"").append(String.valueOf(packetId)).append("\",packet=\"").append(nameOf(packetId)).append("\"} ")
+                    .append(String.valueOf(value.sum())).append('\n');
+        }
+    }
+
+    private static String nameOf(int packetId)
+    {
+        try
+        {
+            return PacketRegistry.get(Packet.class, packetId).getSimpleName();
+        }
+        catch (IllegalArgumentException exception)
+        {
+            return "unknown";
+        }
+    }
+
+    private static void counter(Appendable output, String name, String help) throws IOException
+    {
+        output.append("# HELP ").append(PREFIX).append(name).append(' ').append(help).append('\n');
+        output.append("# TYPE ").append(PREFIX).append(name).append(" counter\n");
+    }
+
+    private static void gauge(Appendable output, String name, String help) throws IOException
+    {
+        output.append("# HELP ").append(PREFIX).append(name).append(' ').append(help).append('\n');
+        output.append("# TYPE ").append(PREFIX).append(name).append(" gauge\n");
+    }
+
+    private static void summary(Appendable output, String name, String help, LatencyHistogram histogram) throws IOException
+    {
+        output.append("# HELP ").append(PREFIX).append(name).append(' ').append(help).append('\n');
+        output.append("# TYPE ").append(PREFIX).append(name).append(" summary\n");
+        for (double quantile : QUANTILES)
+        {
+            output.append(PREFIX).append(name).append("{quantile=\"").append(String.valueOf(quantile)).append("\"} ")
+                    .append(String.valueOf(histogram.getPercentile(quantile) / 1e9)).append('\n');
+        }
+        output.append(PREFIX).append(name).append("_sum ").append(String.valueOf(histogram.getSum() / 1e9)).append('\n');
+        output.append(PREFIX).append(name).append("_count ").append(String.valueOf(histogram.getCount())).append('\n');
+    }
+
+    public String toPrometheus()
+    {
+        final StringBuilder output = new StringBuilder();
+        try
+        {
+            writePrometheus(output);
+        }
+        catch (IOException exception)
+        {
+            throw new IllegalStateException(exception);
+        }
+        return output.toString();
+    }
+
+    public void writeTo(Path path) throws IOException
+    {
+        final Path temporary = path.resolveSibling(path.getFileName() + ".tmp");
+        try (Writer writer = Files.newBufferedWriter(temporary, StandardCharsets.UTF_8))
+        {
+            writePrometheus(writer);
+        }
+        Files.move(temporary, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private static final class PacketCounters
+    {
+        private final LongAdder packetsIn = new LongAdder();
+        private final LongAdder bytesIn = new LongAdder();
+        private final LongAdder packetsOut = new LongAdder();
+        private final LongAdder bytesOut = new LongAdder();
+    }
+}
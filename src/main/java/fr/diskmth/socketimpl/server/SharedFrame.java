@@ -0,0 +1,61 @@
+package fr.diskmth.socketimpl.server;
+
+import fr.diskmth.socketimpl.common.Packet;
+import fr.diskmth.socketimpl.common.PacketBuffer;
+import fr.diskmth.socketimpl.common.PacketBufferPool;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class SharedFrame
+{
+    private final PacketBuffer.Writer writer;
+    private final PacketBufferPool bufferPool;
+    private final ByteBuffer buffer;
+    private final Packet.Priority priority;
+    private final int packetId;
+    private final AtomicInteger references = new AtomicInteger(1);
+
+    protected SharedFrame(PacketBuffer.Writer writer, PacketBufferPool bufferPool, int packetId, Packet.Priority priority)
+    {
+        this.writer = writer;
+        this.bufferPool = bufferPool;
+        this.buffer = writer.toByteBuffer().asReadOnlyBuffer();
+        this.priority = priority;
+        this.packetId = packetId;
+    }
+
+    protected OutboundFrame retain()
+    {
+        references.incrementAndGet();
+        return new OutboundFrame(this);
+    }
+
+    protected ByteBuffer duplicate()
+    {
+        return buffer.duplicate();
+    }
+
+    public Packet.Priority getPriority()
+    {
+        return priority;
+    }
+
+    public int getPacketId()
+    {
+        return packetId;
+    }
+
+    public int getSize()
+    {
+        return buffer.remaining();
+    }
+
+    public void release()
+    {
+        if (references.decrementAndGet() == 0)
+        {
+            bufferPool.release(writer);
+        }
+    }
+}
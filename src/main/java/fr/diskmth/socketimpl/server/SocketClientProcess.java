@@ -0,0 +1,190 @@
+package fr.diskmth.socketimpl.server;
+
+import fr.diskmth.socketimpl.common.FrameDecoder;
+import fr.diskmth.socketimpl.common.PacketBuffer;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.Socket;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.WritableByteChannel;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+public class SocketClientProcess extends ClientProcess implements Runnable
+{
+    private final Socket clientSocket;
+    private final AtomicBoolean isWriting = new AtomicBoolean(false);
+    private final AtomicBoolean isFlushScheduled = new AtomicBoolean(false);
+
+    private WritableByteChannel toClient = null;
+
+    protected SocketClientProcess(Socket clientSocket, Server server)
+    {
+        super(server, clientSocket.getInetAddress());
+        this.clientSocket = clientSocket;
+    }
+
+    @Override
+    public void run()
+    {
+        try
+        {
+            final InputStream fromClient = clientSocket.getInputStream();
+            final FrameDecoder frameDecoder = createFrameDecoder();
+
+            while (!clientSocket.isClosed())
+            {
+                if (frameDecoder.readFrom(fromClient) < 0)
+                {
+                    break;
+                }
+
+                frameDecoder.decode(this::receivePacket);
+                scheduleFlush();
+            }
+        }
+        catch (IOException | RuntimeException exception)
+        {
+            asyncLogger.warn(() -> clientId + ": Error while processing client socket", exception, genericsLogs, serverCallsLogs);
+        }
+        finally
+        {
+            close();
+        }
+    }
+
+    @Override
+    public void flush()
+    {
+        while (!packetsToSend.isEmpty() && isWriting.compareAndSet(false, true))
+        {
+            try
+            {
+                writePendingFrames();
+            }
+            finally
+            {
+                isWriting.set(false);
+            }
+        }
+    }
+
+    @Override
+    public void scheduleFlush()
+    {
+        if (packetsToSend.isEmpty() || !isFlushScheduled.compareAndSet(false, true))
+        {
+            return;
+        }
+
+        try
+        {
+            server.getWriterExecutor().execute(() ->
+            {
+                isFlushScheduled.set(false);
+                flush();
+            });
+        }
+        catch (RejectedExecutionException exception)
+        {
+            isFlushScheduled.set(false);
+            close();
+        }
+    }
+
+    private void writePendingFrames()
+    {
+        PacketBuffer.Writer batch = null;
+        OutboundFrame frame;
+
+        try
+        {
+            if (toClient == null)
+            {
+                toClient = Channels.newChannel(clientSocket.getOutputStream());
+            }
+
+            while ((frame = pollFrame()) != null)
+            {
+                try
+                {
+                    if (frame instanceof FileTransferFrame transfer)
+                    {
+                        if (batch != null && batch.getPosition() > 0)
+                        {
+                            writeFully(batch.toByteBuffer());
+                            batch.flush();
+                        }
+
+                        transfer.writeTo(toClient, false);
+                        continue;
+                    }
+
+                    final ByteBuffer buffer = frame.getBuffer();
+
+                    if (batch != null && batch.getPosition() + buffer.remaining() > FLUSH_WATERMARK)
+                    {
+                        writeFully(batch.toByteBuffer());
+                        batch.flush();
+                    }
+
+                    if (buffer.remaining() >= FLUSH_WATERMARK)
+                    {
+                        writeFully(buffer);
+                        continue;
+                    }
+
+                    if (batch == null)
+                    {
+                        batch = bufferPool.acquireWriter(FLUSH_WATERMARK);
+                    }
+                    batch.writeBytes(buffer);
+                }
+                finally
+                {
+                    releaseFrame(frame);
+                }
+            }
+
+            if (batch != null && batch.getPosition() > 0)
+            {
+                writeFully(batch.toByteBuffer());
+            }
+        }
+        catch (IOException exception)
+        {
+            asyncLogger.warn(() -> clientId + ": Error while writing to client socket", exception, genericsLogs, serverCallsLogs);
+            close();
+        }
+        finally
+        {
+            if (batch != null)
+            {
+                bufferPool.release(batch);
+            }
+        }
+    }
+
+    private void writeFully(ByteBuffer buffer) throws IOException
+    {
+        while (buffer.hasRemaining())
+        {
+            toClient.write(buffer);
+        }
+    }
+
+    @Override
+    protected void closeConnection()
+    {
+        try
+        {
+            clientSocket.close();
+        }
+        catch (IOException exception)
+        {
+            asyncLogger.warn(() -> clientId + ": Unable to close client socket", exception, genericsLogs, serverCallsLogs);
+        }
+    }
+}
@@ -0,0 +1,6 @@
+package fr.diskmth.socketimpl.server;
+
+public interface WritabilityListener
+{
+    void onWritabilityChanged(ClientProcess clientProcess, boolean isWritable);
+}
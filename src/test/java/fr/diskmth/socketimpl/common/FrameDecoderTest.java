@@ -0,0 +1,139 @@
+package fr.diskmth.socketimpl.common;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FrameDecoderTest
+{
+    @Test
+    void decodesFramesSplitInsideTheHeader() throws IOException
+    {
+        final byte[] bytes = concat(frame(3, FrameDecoder.NO_REQUEST, 42), frame(7, FrameDecoder.NO_REQUEST, -1));
+        final FrameDecoder decoder = new FrameDecoder(FrameDecoder.DEFAULT_MAX_FRAME_SIZE);
+        final List<String> frames = new ArrayList<>();
+
+        for (int i = 0; i < bytes.length; i++)
+        {
+            assertEquals(1, decoder.readFrom(new ByteArrayInputStream(bytes, i, 1)));
+            decoder.decode(collector(frames));
+
+            if (i < FrameDecoder.HEADER_SIZE + Integer.BYTES - 1)
+            {
+                assertTrue(frames.isEmpty());
+            }
+        }
+
+        assertEquals(List.of("3:0:42", "7:0:-1"), frames);
+    }
+
+    @Test
+    void decodesTheRequestIdAndClearsTheRequestFlag() throws IOException
+    {
+        final FrameDecoder decoder = new FrameDecoder(FrameDecoder.DEFAULT_MAX_FRAME_SIZE);
+        final List<String> frames = new ArrayList<>();
+
+        decoder.readFrom(new ByteArrayInputStream(frame(PacketRegistry.MAX_PACKET_ID, Long.MIN_VALUE, 5)));
+        decoder.decode(collector(frames));
+
+        assertEquals(List.of(PacketRegistry.MAX_PACKET_ID + ":" + Long.MIN_VALUE + ":5"), frames);
+    }
+
+    @Test
+    void rejectsARequestFrameTooShortForItsId() throws IOException
+    {
+        final PacketBuffer.Writer writer = new PacketBuffer.Writer(16);
+        writer.writeInt(Integer.BYTES);
+        writer.writeInt(1 | FrameDecoder.REQUEST_FLAG);
+        writer.writeInt(0);
+
+        final FrameDecoder decoder = new FrameDecoder(FrameDecoder.DEFAULT_MAX_FRAME_SIZE);
+        decoder.readFrom(new ByteArrayInputStream(bytesOf(writer)));
+
+        assertThrows(IOException.class, () -> decoder.decode(collector(new ArrayList<>())));
+    }
+
+    @Test
+    void acceptsAFrameOfExactlyTheMaximumSize() throws IOException
+    {
+        final int maxFrameSize = 4096;
+        final FrameDecoder decoder = new FrameDecoder(maxFrameSize);
+        final List<Integer> sizes = new ArrayList<>();
+        final InputStream inputStream = new ByteArrayInputStream(payloadFrame(maxFrameSize));
+
+        while (decoder.readFrom(inputStream) > 0)
+        {
+            decoder.decode((packetId, requestId, reader) -> sizes.add(reader.remaining()));
+        }
+
+        assertEquals(List.of(maxFrameSize), sizes);
+    }
+
+    @Test
+    void rejectsAFrameOverTheMaximumSize() throws IOException
+    {
+        final FrameDecoder decoder = new FrameDecoder(4096);
+        decoder.readFrom(new ByteArrayInputStream(payloadFrame(4097)));
+
+        assertThrows(IOException.class, () -> decoder.decode(collector(new ArrayList<>())));
+    }
+
+    @Test
+    void rejectsANegativeFrameLength() throws IOException
+    {
+        final PacketBuffer.Writer writer = new PacketBuffer.Writer(8);
+        writer.writeInt(-1);
+        writer.writeInt(0);
+
+        final FrameDecoder decoder = new FrameDecoder(FrameDecoder.DEFAULT_MAX_FRAME_SIZE);
+        decoder.readFrom(new ByteArrayInputStream(bytesOf(writer)));
+
+        assertThrows(IOException.class, () -> decoder.decode(collector(new ArrayList<>())));
+    }
+
+    private static FrameDecoder.FrameHandler collector(List<String> frames)
+    {
+        return (packetId, requestId, reader) -> frames.add(packetId + ":" + requestId + ":" + reader.readInt());
+    }
+
+    private static byte[] frame(int packetId, long requestId, int value)
+    {
+        final PacketBuffer.Writer writer = new PacketBuffer.Writer(32);
+        final int start = FrameEncoder.begin(writer, packetId, requestId);
+        writer.writeInt(value);
+        FrameEncoder.end(writer, start);
+        return bytesOf(writer);
+    }
+
+    private static byte[] payloadFrame(int length)
+    {
+        final PacketBuffer.Writer writer = new PacketBuffer.Writer(FrameDecoder.HEADER_SIZE + length);
+        final int start = FrameEncoder.begin(writer, 1);
+        writer.writeBytes(new byte[length]);
+        FrameEncoder.end(writer, start);
+        return bytesOf(writer);
+    }
+
+    private static byte[] bytesOf(PacketBuffer.Writer writer)
+    {
+        final ByteBuffer buffer = writer.toByteBuffer();
+        final byte[] bytes = new byte[buffer.remaining()];
+        buffer.get(bytes);
+        return bytes;
+    }
+
+    private static byte[] concat(byte[] first, byte[] second)
+    {
+        final byte[] bytes = Arrays.copyOf(first, first.length + second.length);
+        System.arraycopy(second, 0, bytes, first.length, second.length);
+        return bytes;
+    }
+}
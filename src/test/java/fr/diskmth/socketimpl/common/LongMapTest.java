@@ -0,0 +1,83 @@
+package fr.diskmth.socketimpl.common;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LongMapTest
+{
+    @Test
+    void putReplacesAndReturnsThePreviousValue()
+    {
+        final LongMap<String> map = new LongMap<>();
+
+        assertNull(map.put(1, "a"));
+        assertEquals("a", map.put(1, "b"));
+        assertEquals("b", map.get(1));
+        assertEquals(1, map.size());
+    }
+
+    @Test
+    void rejectsTheReservedKey()
+    {
+        assertThrows(IllegalArgumentException.class, () -> new LongMap<String>().put(0, "a"));
+        assertNull(new LongMap<String>().get(0));
+    }
+
+    @Test
+    void keepsCollidingKeysReachableAfterRemoval()
+    {
+        final LongMap<Long> map = new LongMap<>(4);
+        for (long key = 1; key <= 64; key++)
+        {
+            map.put(key << 32, key);
+        }
+
+        for (long key = 1; key <= 64; key += 2)
+        {
+            assertEquals(key, map.remove(key << 32));
+        }
+
+        assertEquals(32, map.size());
+        for (long key = 1; key <= 64; key++)
+        {
+            assertEquals(key % 2 == 0 ? Long.valueOf(key) : null, map.get(key << 32));
+        }
+    }
+
+    @Test
+    void matchesAHashMapUnderRandomOperations()
+    {
+        final LongMap<Integer> map = new LongMap<>();
+        final Map<Long, Integer> expected = new HashMap<>();
+        final Random random = new Random(42);
+
+        for (int i = 0; i < 100_000; i++)
+        {
+            final long key = random.nextInt(512) + 1 + (random.nextBoolean() ? Long.MIN_VALUE : 0);
+            if (random.nextInt(3) == 0)
+            {
+                assertEquals(expected.remove(key), map.remove(key));
+            }
+            else
+            {
+                assertEquals(expected.put(key, i), map.put(key, i));
+            }
+        }
+
+        assertEquals(expected.size(), map.size());
+        expected.forEach((key, value) -> assertEquals(value, map.get(key)));
+
+        final int[] count = {0};
+        map.forEachValue(value -> count[0]++);
+        assertEquals(expected.size(), count[0]);
+
+        map.clear();
+        assertTrue(map.isEmpty());
+        assertNull(map.get(expected.keySet().iterator().next()));
+    }
+}
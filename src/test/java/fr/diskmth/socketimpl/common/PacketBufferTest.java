@@ -0,0 +1,91 @@
+package fr.diskmth.socketimpl.common;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PacketBufferTest
+{
+    private static final int[] INTS = {0, 1, -1, 63, -64, 64, -65, 127, 128, 16383, 16384, Integer.MAX_VALUE, Integer.MIN_VALUE};
+    private static final long[] LONGS = {0, 1, -1, 63, -64, 127, 128, Integer.MAX_VALUE, Integer.MIN_VALUE, 1L << 56, Long.MAX_VALUE, Long.MIN_VALUE};
+
+    @Test
+    void roundTripsVarInts()
+    {
+        for (int value : INTS)
+        {
+            final PacketBuffer.Writer writer = new PacketBuffer.Writer(1);
+            writer.writeVarInt(value);
+            writer.writeSignedVarInt(value);
+
+            final PacketBuffer.Reader reader = readerOf(writer);
+            assertEquals(value, reader.readVarInt());
+            assertEquals(value, reader.readSignedVarInt());
+            assertFalse(reader.available());
+        }
+    }
+
+    @Test
+    void roundTripsVarLongs()
+    {
+        for (long value : LONGS)
+        {
+            final PacketBuffer.Writer writer = new PacketBuffer.Writer(1);
+            writer.writeVarLong(value);
+            writer.writeSignedVarLong(value);
+
+            final PacketBuffer.Reader reader = readerOf(writer);
+            assertEquals(value, reader.readVarLong());
+            assertEquals(value, reader.readSignedVarLong());
+            assertFalse(reader.available());
+        }
+    }
+
+    @Test
+    void encodesVarIntsWithTheExpectedLength()
+    {
+        assertEquals(1, varIntSize(0));
+        assertEquals(1, varIntSize(127));
+        assertEquals(2, varIntSize(128));
+        assertEquals(5, varIntSize(Integer.MAX_VALUE));
+        assertEquals(5, varIntSize(-1));
+    }
+
+    @Test
+    void encodesSmallSignedValuesInOneByte()
+    {
+        for (int value : new int[]{-64, -1, 0, 63})
+        {
+            final PacketBuffer.Writer writer = new PacketBuffer.Writer(5);
+            writer.writeSignedVarInt(value);
+            assertEquals(1, writer.getPosition());
+        }
+
+        final PacketBuffer.Writer writer = new PacketBuffer.Writer(10);
+        writer.writeSignedVarLong(Long.MIN_VALUE);
+        assertEquals(10, writer.getPosition());
+    }
+
+    @Test
+    void rejectsOverlongVarInts()
+    {
+        assertThrows(IllegalStateException.class, () -> new PacketBuffer.Reader((byte) 0x80, (byte) 0x80, (byte) 0x80, (byte) 0x80, (byte) 0x80, (byte) 0x01).readVarInt());
+    }
+
+    private static int varIntSize(int value)
+    {
+        final PacketBuffer.Writer writer = new PacketBuffer.Writer(5);
+        writer.writeVarInt(value);
+        return writer.getPosition();
+    }
+
+    private static PacketBuffer.Reader readerOf(PacketBuffer.Writer writer)
+    {
+        final ByteBuffer buffer = writer.toByteBuffer();
+        final byte[] bytes = new byte[buffer.remaining()];
+        buffer.get(bytes);
+        return new PacketBuffer.Reader(bytes);
+    }
+}
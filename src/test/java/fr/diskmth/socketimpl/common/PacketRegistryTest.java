@@ -0,0 +1,94 @@
+package fr.diskmth.socketimpl.common;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PacketRegistryTest
+{
+    private static final int FIRST_ID = PacketRegistry.MAX_PACKET_ID - 16;
+
+    @Test
+    void createsRegisteredPacketsById()
+    {
+        PacketRegistry.registerPacket(FIRST_ID, FirstPacket.class);
+
+        assertEquals(FIRST_ID, PacketRegistry.indexOf(FirstPacket.class));
+        assertSame(FirstPacket.class, PacketRegistry.get(Packet.S2C.class, FIRST_ID));
+        assertInstanceOf(FirstPacket.class, PacketRegistry.create(Packet.S2C.class, FIRST_ID));
+        assertInstanceOf(FirstPacket.class, PacketRegistry.create(Packet.class, FIRST_ID));
+    }
+
+    @Test
+    void usesTheGivenFactory()
+    {
+        final SecondPacket packet = new SecondPacket();
+        PacketRegistry.registerPacket(FIRST_ID + 1, SecondPacket.class, () -> packet);
+
+        assertSame(packet, PacketRegistry.create(SecondPacket.class, FIRST_ID + 1));
+    }
+
+    @Test
+    void rejectsInvalidRegistrations()
+    {
+        PacketRegistry.registerPacket(FIRST_ID + 2, ThirdPacket.class);
+
+        assertThrows(IllegalArgumentException.class, () -> PacketRegistry.registerPacket(FIRST_ID + 3, ThirdPacket.class));
+        assertThrows(IllegalArgumentException.class, () -> PacketRegistry.registerPacket(FIRST_ID + 2, UnregisteredPacket.class));
+        assertThrows(IllegalArgumentException.class, () -> PacketRegistry.registerPacket(-1, UnregisteredPacket.class));
+        assertThrows(IllegalArgumentException.class, () -> PacketRegistry.registerPacket(PacketRegistry.MAX_PACKET_ID + 1, UnregisteredPacket.class));
+        assertThrows(IllegalArgumentException.class, () -> PacketRegistry.registerPacket(FIRST_ID + 4, NoDefaultConstructorPacket.class));
+        assertEquals(-1, PacketRegistry.indexOf(UnregisteredPacket.class));
+    }
+
+    @Test
+    void rejectsUnknownIdsAndMismatchedSides()
+    {
+        PacketRegistry.registerPacket(FIRST_ID + 5, FourthPacket.class);
+
+        assertThrows(IllegalArgumentException.class, () -> PacketRegistry.create(Packet.C2S.class, FIRST_ID + 5));
+        assertThrows(IllegalArgumentException.class, () -> PacketRegistry.create(Packet.S2C.class, FIRST_ID + 6));
+        assertThrows(IllegalArgumentException.class, () -> PacketRegistry.create(Packet.S2C.class, -1));
+        assertThrows(IllegalArgumentException.class, () -> PacketRegistry.create(Packet.S2C.class, Integer.MAX_VALUE));
+    }
+
+    public static class TestPacket extends Packet.S2C
+    {
+        @Override
+        public void send(PacketBuffer.Writer writer, PacketContext.Server context)
+        {
+        }
+
+        @Override
+        public void receive(PacketBuffer.Reader reader, PacketContext.Server context)
+        {
+        }
+    }
+
+    public static class FirstPacket extends TestPacket
+    {
+    }
+
+    public static class SecondPacket extends TestPacket
+    {
+    }
+
+    public static class ThirdPacket extends TestPacket
+    {
+    }
+
+    public static class FourthPacket extends TestPacket
+    {
+    }
+
+    public static class UnregisteredPacket extends TestPacket
+    {
+    }
+
+    public static class NoDefaultConstructorPacket extends TestPacket
+    {
+        public NoDefaultConstructorPacket(int value)
+        {
+        }
+    }
+}
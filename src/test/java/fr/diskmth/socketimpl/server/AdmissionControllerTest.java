@@ -0,0 +1,114 @@
+package fr.diskmth.socketimpl.server;
+
+import org.junit.jupiter.api.Test;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AdmissionControllerTest
+{
+    @Test
+    void limitsConnectionsPerIp() throws UnknownHostException
+    {
+        final AdmissionController controller = new AdmissionController(2, 0, 0, 0, 0, AdmissionController.DEFAULT_MAX_TRACKED_IPS);
+        final InetAddress address = address(1);
+
+        assertNull(controller.tryAdmit(address));
+        assertNull(controller.tryAdmit(address));
+        assertEquals(AdmissionController.PER_IP_CONNECTIONS, controller.tryAdmit(address));
+        assertNull(controller.tryAdmit(address(2)));
+
+        controller.release(address);
+        assertEquals(1, controller.getConnections(address));
+        assertNull(controller.tryAdmit(address));
+    }
+
+    @Test
+    void refillsThePerIpBucketOverTime() throws UnknownHostException, InterruptedException
+    {
+        final AdmissionController controller = new AdmissionController(0, 20, 2, 0, 0, AdmissionController.DEFAULT_MAX_TRACKED_IPS);
+        final InetAddress address = address(1);
+
+        assertNull(controller.tryAdmit(address));
+        assertNull(controller.tryAdmit(address));
+        assertEquals(AdmissionController.PER_IP_RATE, controller.tryAdmit(address));
+        assertNull(controller.tryAdmit(address(2)));
+
+        Thread.sleep(100);
+        assertNull(controller.tryAdmit(address));
+    }
+
+    @Test
+    void refundsThePerIpTokenWhenTheGlobalBucketIsEmpty() throws UnknownHostException, InterruptedException
+    {
+        final AdmissionController controller = new AdmissionController(0, 0.001, 1, 20, 1, AdmissionController.DEFAULT_MAX_TRACKED_IPS);
+        final InetAddress address = address(1);
+
+        assertNull(controller.tryAdmit(address(2)));
+        assertEquals(AdmissionController.GLOBAL_RATE, controller.tryAdmit(address));
+
+        Thread.sleep(100);
+        assertNull(controller.tryAdmit(address));
+    }
+
+    @Test
+    void appliesTheGlobalRateWithoutPerIpLimits() throws UnknownHostException
+    {
+        final AdmissionController controller = new AdmissionController(0, 0, 0, 0.001, 2, AdmissionController.DEFAULT_MAX_TRACKED_IPS);
+
+        assertNull(controller.tryAdmit(address(1)));
+        assertNull(controller.tryAdmit(address(2)));
+        assertEquals(AdmissionController.GLOBAL_RATE, controller.tryAdmit(address(3)));
+        assertEquals(0, controller.trackedIps());
+    }
+
+    @Test
+    void evictsIdleIpsWhenTrackingIsFull() throws UnknownHostException
+    {
+        final AdmissionController controller = new AdmissionController(1, 0, 0, 0, 0, 8);
+        for (int i = 0; i < 8; i++)
+        {
+            assertNull(controller.tryAdmit(address(i)));
+        }
+
+        assertEquals(AdmissionController.TRACKING_FULL, controller.tryAdmit(address(8)));
+
+        for (int i = 0; i < 4; i++)
+        {
+            controller.release(address(i));
+        }
+
+        assertNull(controller.tryAdmit(address(8)));
+        assertTrue(controller.trackedIps() <= 7);
+        for (int i = 4; i < 8; i++)
+        {
+            assertEquals(1, controller.getConnections(address(i)));
+        }
+    }
+
+    @Test
+    void prefersEvictingIpsWithRefilledBuckets() throws UnknownHostException, InterruptedException
+    {
+        final AdmissionController controller = new AdmissionController(0, 20, 1, 0, 0, 4);
+        for (int i = 0; i < 4; i++)
+        {
+            assertNull(controller.tryAdmit(address(i)));
+            controller.release(address(i));
+        }
+
+        Thread.sleep(100);
+        assertNull(controller.tryAdmit(address(0)));
+        controller.release(address(0));
+
+        assertNull(controller.tryAdmit(address(4)));
+        assertEquals(4, controller.trackedIps());
+        assertEquals(AdmissionController.PER_IP_RATE, controller.tryAdmit(address(0)));
+    }
+
+    private static InetAddress address(int index) throws UnknownHostException
+    {
+        return InetAddress.getByAddress(new byte[]{10, 0, (byte) (index >>> 8), (byte) index});
+    }
+}
@@ -0,0 +1,121 @@
+package fr.diskmth.socketimpl.server;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class IpFilterTest
+{
+    @Test
+    void allowsEverythingWithoutRules() throws UnknownHostException
+    {
+        final IpFilter filter = new IpFilter();
+
+        assertTrue(filter.isAllowed(address("10.0.0.1")));
+        assertTrue(filter.isAllowed(address("::1")));
+    }
+
+    @Test
+    void deniesEverythingOutsideAllowRules() throws UnknownHostException
+    {
+        final IpFilter filter = new IpFilter().allow("192.168.0.0/16");
+
+        assertTrue(filter.isAllowed(address("192.168.42.1")));
+        assertFalse(filter.isAllowed(address("192.169.0.1")));
+    }
+
+    @Test
+    void usesTheLongestMatchingPrefix() throws UnknownHostException
+    {
+        final IpFilter filter = new IpFilter().deny("10.0.0.0/8").allow("10.1.0.0/16").deny("10.1.2.0/24").allow("10.1.2.3");
+
+        assertFalse(filter.isAllowed(address("10.2.0.1")));
+        assertTrue(filter.isAllowed(address("10.1.3.4")));
+        assertFalse(filter.isAllowed(address("10.1.2.4")));
+        assertTrue(filter.isAllowed(address("10.1.2.3")));
+        assertFalse(filter.isAllowed(address("11.0.0.1")));
+    }
+
+    @Test
+    void denyWinsOnTheSamePrefix() throws UnknownHostException
+    {
+        final IpFilter filter = new IpFilter().allow("172.16.0.0/12").deny("172.16.0.0/12").allow("172.16.0.0/12");
+
+        assertFalse(filter.isAllowed(address("172.20.1.1")));
+        assertEquals(3, filter.ruleCount());
+    }
+
+    @Test
+    void matchesPrefixBoundaries() throws UnknownHostException
+    {
+        final IpFilter filter = new IpFilter().deny("0.0.0.0/0").allow("128.0.0.0/1").allow("2001:db8::/32");
+
+        assertTrue(filter.isAllowed(address("128.0.0.0")));
+        assertTrue(filter.isAllowed(address("255.255.255.255")));
+        assertFalse(filter.isAllowed(address("127.255.255.255")));
+        assertTrue(filter.isAllowed(address("2001:db8:ffff::1")));
+        assertFalse(filter.isAllowed(address("2001:db9::1")));
+    }
+
+    @Test
+    void mapsIpv4MappedPrefixesToIpv4() throws UnknownHostException
+    {
+        final IpFilter filter = new IpFilter().deny("::ffff:10.0.0.0/104");
+
+        assertFalse(filter.isAllowed(address("10.20.30.40")));
+        assertTrue(filter.isAllowed(address("11.0.0.1")));
+    }
+
+    @Test
+    void rejectsInvalidRules()
+    {
+        assertThrows(IllegalArgumentException.class, () -> new IpFilter().deny("example.com"));
+        assertThrows(IllegalArgumentException.class, () -> new IpFilter().deny("10.0.0.0/33"));
+        assertThrows(IllegalArgumentException.class, () -> new IpFilter().deny("10.0.0.0/x"));
+        assertThrows(IllegalArgumentException.class, () -> new IpFilter().deny("::/129"));
+    }
+
+    @Test
+    void loadsRulesFromAFile(@TempDir Path directory) throws IOException
+    {
+        final Path file = directory.resolve("ips.txt");
+        Files.writeString(file, "# comment\n\n10.0.0.0/8\nallow 10.0.0.1\n");
+
+        final IpFilter filter = new IpFilter().deny("192.168.0.1").file(file, 0);
+        filter.reload();
+
+        assertEquals(3, filter.ruleCount());
+        assertFalse(filter.isAllowed(address("10.0.0.2")));
+        assertTrue(filter.isAllowed(address("10.0.0.1")));
+        assertFalse(filter.isAllowed(address("192.168.0.1")));
+        assertFalse(filter.reloadIfModified());
+    }
+
+    @Test
+    void keepsThePreviousRulesWhenAFileIsInvalid(@TempDir Path directory) throws IOException
+    {
+        final Path file = directory.resolve("ips.txt");
+        Files.writeString(file, "10.0.0.0/8\n");
+
+        final IpFilter filter = new IpFilter().file(file, 0);
+        filter.reload();
+
+        Files.writeString(file, "10.0.0.0/8\npermit 10.0.0.1\n");
+        final IOException exception = assertThrows(IOException.class, filter::reload);
+        assertTrue(exception.getMessage().contains(":2:"));
+        assertFalse(filter.isAllowed(address("10.0.0.1")));
+        assertEquals(1, filter.ruleCount());
+    }
+
+    private static InetAddress address(String host) throws UnknownHostException
+    {
+        return InetAddress.getByName(host);
+    }
+}